@@ -2,8 +2,13 @@ package ascii_art;
 
 import ascii_output.ConsoleAsciiOutput;
 import ascii_output.HtmlAsciiOutput;
+import image.BlockMasks;
+import image.BlockStatistics;
 import image.Image;
 import image.ImagePrepration;
+import image_char_matching.BrightnessDitherer;
+import image_char_matching.BrightnessLookupTable;
+import image_char_matching.GlyphMasks;
 import image_char_matching.SubImgCharMatcher;
 
 import java.io.IOException;
@@ -18,12 +23,12 @@ public class AsciiArtAlgorithm {
 
     /** The source image to convert to ASCII art */
     private final Image image;
-    /** Character set used for ASCII art conversion */
-    private final char[] charset;
     /** Resolution setting for the output */
     private final int resolution;
     /** Handles matching of characters to brightness values */
     private final SubImgCharMatcher charMatcher;
+    /** Number of threads used for the brightness pass */
+    private final int parallelism;
     /** Final ASCII art output as 2D character array */
     private char[][] finalBrightness;
 
@@ -35,38 +40,225 @@ public class AsciiArtAlgorithm {
      * @param resolution Output resolution setting
      */
     public AsciiArtAlgorithm(Image image, char[] charset, int resolution) {
+        this(image, charset, resolution, ImagePrepration.SEQUENTIAL);
+    }
+
+    /**
+     * Creates a new ASCII art conversion algorithm instance that computes
+     * brightness on several threads.
+     *
+     * @param image Source image to convert
+     * @param charset Characters to use in ASCII art output
+     * @param resolution Output resolution setting
+     * @param parallelism Number of threads for the brightness pass
+     */
+    public AsciiArtAlgorithm(Image image, char[] charset, int resolution, int parallelism) {
+        this(image, new SubImgCharMatcher(charset), resolution, parallelism);
+    }
+
+    /**
+     * Creates a new ASCII art conversion algorithm instance that uses an existing
+     * character matcher, including its rounding method.
+     *
+     * @param image Source image to convert
+     * @param charMatcher Matcher holding the charset and rounding method to use
+     * @param resolution Output resolution setting
+     * @param parallelism Number of threads for the brightness pass
+     */
+    public AsciiArtAlgorithm(Image image, SubImgCharMatcher charMatcher, int resolution,
+                             int parallelism) {
         this.image = image;
-        this.charset = charset;
         this.resolution = resolution;
-        this.charMatcher = new SubImgCharMatcher(charset);
+        this.parallelism = parallelism;
+        this.charMatcher = charMatcher;
         this.finalBrightness = null;
     }
 
     /**
      * Executes the ASCII art conversion algorithm.
      * Processes the image by:
-     * 1. Preparing the image and calculating brightness values
+     * 1. Calculating brightness values from the image's luminance integral table
      * 2. Converting brightness values to characters
      * 3. Creating the final ASCII art character array
      *
      * @return 2D array of characters representing the ASCII art
      */
     public char[][] run() {
-        // Prepare image and calculate brightness values
+        return mapToChars(calculateBrightness());
+    }
+
+    /**
+     * Calculates the brightness grid of the image at the configured resolution.
+     * The grid does not depend on the charset or rounding method, so callers may keep
+     * it and only call {@link #mapToChars(double[][])} after those settings change.
+     *
+     * @return 2D array of brightness values for each sub-image
+     */
+    public double[][] calculateBrightness() {
+        ImagePrepration imagePrepration = new ImagePrepration(image, resolution);
+        imagePrepration.setParallelism(parallelism);
+        return imagePrepration.calculateBrightnessWithIntegral();
+    }
+
+    /**
+     * Calculates the brightness grid and the average color of every block of the image
+     * in a single pass, for color output.
+     *
+     * @return Brightness and color of each block
+     */
+    public BlockStatistics calculateBrightnessAndColor() {
+        ImagePrepration imagePrepration = new ImagePrepration(image, resolution);
+        imagePrepration.setParallelism(parallelism);
+        return imagePrepration.calculateBrightnessAndColorForALL();
+    }
+
+    /**
+     * Calculates the brightness grid of the unpadded image with exactly
+     * {@code resolution} characters per row, for resolutions that do not divide the
+     * image width. Boundary pixels are weighted by the area each block covers.
+     *
+     * @return 2D array of brightness values for each block
+     */
+    public double[][] calculateBrightnessExactWidth() {
+        ImagePrepration imagePrepration = new ImagePrepration(image, resolution);
+        imagePrepration.setParallelism(parallelism);
+        return imagePrepration.calculateBrightnessAreaWeighted();
+    }
+
+    /**
+     * Calculates the brightness grid and the average color of every block of the
+     * unpadded image with exactly {@code resolution} characters per row, in a single pass.
+     *
+     * @return Brightness and color of each block
+     */
+    public BlockStatistics calculateBrightnessAndColorExactWidth() {
+        ImagePrepration imagePrepration = new ImagePrepration(image, resolution);
+        imagePrepration.setParallelism(parallelism);
+        return imagePrepration.calculateBrightnessAndColorAreaWeighted();
+    }
+
+    /**
+     * Thresholds every block of the image at the configured resolution into a mask of
+     * glyph-sized cells, for matching blocks by shape.
+     *
+     * @return The packed mask of each block
+     */
+    public BlockMasks calculateBlockMasks() {
         ImagePrepration imagePrepration = new ImagePrepration(image, resolution);
-        double[][] givenBrightness = imagePrepration.calculateBrightnessForALL(image, resolution);
+        imagePrepration.setParallelism(parallelism);
+        return imagePrepration.calculateBlockMasks(GlyphMasks.MASK_SIZE);
+    }
 
+    /**
+     * Thresholds every block of the unpadded image, with exactly {@code resolution}
+     * characters per row, into a mask of glyph-sized cells.
+     *
+     * @return The packed mask of each block
+     */
+    public BlockMasks calculateBlockMasksExactWidth() {
+        ImagePrepration imagePrepration = new ImagePrepration(image, resolution);
+        imagePrepration.setParallelism(parallelism);
+        return imagePrepration.calculateBlockMasksAreaWeighted(GlyphMasks.MASK_SIZE);
+    }
+
+    /**
+     * Converts block masks to the characters of the current charset whose glyphs
+     * have the closest shape.
+     *
+     * @param masks Block masks from {@link #calculateBlockMasks()}
+     * @return 2D array of characters representing the ASCII art
+     */
+    public char[][] matchShapes(BlockMasks masks) {
+        finalBrightness = matchShapes(masks, charMatcher.getGlyphMasks());
+        return finalBrightness;
+    }
+
+    /**
+     * Converts block masks to the characters whose glyphs have the closest shape.
+     * The glyph masks may be shared by conversions running on several threads.
+     *
+     * @param masks Block masks to convert
+     * @param glyphMasks Glyph masks of the charset to use
+     * @return 2D array of characters representing the ASCII art
+     */
+    public static char[][] matchShapes(BlockMasks masks, GlyphMasks glyphMasks) {
+        char[][] chars = new char[masks.getRows()][masks.getCols()];
+        long[] words = masks.getWords();
+        for (int x = 0; x < masks.getRows(); x++) {
+            for (int y = 0; y < masks.getCols(); y++) {
+                chars[x][y] = glyphMasks.closest(words, masks.offset(x, y));
+            }
+        }
+        return chars;
+    }
+
+    /**
+     * Converts a brightness grid to characters using the current charset and
+     * rounding method of the char matcher.
+     *
+     * @param givenBrightness Brightness grid from {@link #calculateBrightness()}
+     * @return 2D array of characters representing the ASCII art
+     */
+    public char[][] mapToChars(double[][] givenBrightness) {
+        finalBrightness = mapToChars(givenBrightness, charMatcher.getLookupTable());
+        return finalBrightness;
+    }
+
+    /**
+     * Converts a brightness grid to characters using the current charset and
+     * rounding method of the char matcher, with dithering.
+     *
+     * @param givenBrightness Brightness grid from {@link #calculateBrightness()}
+     * @param dithering Dithering mode, see {@link BrightnessDitherer}
+     * @return 2D array of characters representing the ASCII art
+     */
+    public char[][] mapToChars(double[][] givenBrightness, String dithering) {
+        finalBrightness = mapToChars(givenBrightness, charMatcher.getLookupTable(), dithering);
+        return finalBrightness;
+    }
+
+    /**
+     * Converts a brightness grid to characters row by row with dithering.
+     * The lookup table may be shared by conversions running on several threads.
+     *
+     * @param givenBrightness Brightness grid to convert
+     * @param lookupTable Lookup table of the charset and rounding method to use
+     * @param dithering Dithering mode, see {@link BrightnessDitherer}
+     * @return 2D array of characters representing the ASCII art
+     */
+    public static char[][] mapToChars(double[][] givenBrightness,
+                                      BrightnessLookupTable lookupTable, String dithering) {
+        if (dithering.equals(BrightnessDitherer.NONE)) {
+            return mapToChars(givenBrightness, lookupTable);
+        }
+        char[][] chars = new char[givenBrightness.length][givenBrightness[0].length];
+        BrightnessDitherer ditherer =
+                new BrightnessDitherer(lookupTable, dithering, givenBrightness[0].length);
+        for (int x = 0; x < givenBrightness.length; x++) {
+            ditherer.mapRow(givenBrightness[x], chars[x]);
+        }
+        return chars;
+    }
+
+    /**
+     * Converts a brightness grid to characters using an immutable lookup table.
+     * The table may be shared by conversions running on several threads.
+     *
+     * @param givenBrightness Brightness grid to convert
+     * @param lookupTable Lookup table of the charset and rounding method to use
+     * @return 2D array of characters representing the ASCII art
+     */
+    public static char[][] mapToChars(double[][] givenBrightness,
+                                      BrightnessLookupTable lookupTable) {
         // Initialize output array
-        finalBrightness = new char[givenBrightness.length][givenBrightness[0].length];
+        char[][] chars = new char[givenBrightness.length][givenBrightness[0].length];
 
-        // Convert brightness values to characters
+        // Convert brightness values to characters through the quantized lookup table
         for (int x = 0; x < givenBrightness.length; x++) {
             for (int y = 0; y < givenBrightness[0].length; y++) {
-                char bri = charMatcher.getCharByImageBrightness(givenBrightness[x][y]);
-                finalBrightness[x][y] = bri;
+                chars[x][y] = lookupTable.charFor(givenBrightness[x][y]);
             }
         }
-
-        return finalBrightness;
+        return chars;
     }
-}
\ No newline at end of file
+}
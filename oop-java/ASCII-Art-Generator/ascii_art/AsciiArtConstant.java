@@ -32,10 +32,26 @@ public class AsciiArtConstant {
     public final static String FORMAT_ERROR_OUTPUT =
             "Did not change output method due to incorrect format.";
 
+    /** Error message for invalid color mode format */
+    public final static String FORMAT_ERROR_COLOR =
+            "Did not change color mode due to incorrect format.";
+
+    /** Error message for invalid matching mode format */
+    public final static String FORMAT_ERROR_MATCH =
+            "Did not change matching mode due to incorrect format.";
+
+    /** Error message for invalid dithering mode format */
+    public final static String FORMAT_ERROR_DITHER =
+            "Did not change dithering mode due to incorrect format.";
+
     /** Error message for insufficient character set size */
     public final static String USER_ERROR_CHARSET =
             "Did not execute. Charset is too small.";
 
+    /** Error message for requesting statistics before any ASCII art run */
+    public final static String USER_ERROR_STATS =
+            "Did not execute. No ASCII art was generated yet.";
+
     /** Error message for invalid command input */
     public final static String USER_ERROR_COMMAND =
             "Did not execute due to incorrect command.";
@@ -0,0 +1,428 @@
+package ascii_art;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import image.Image;
+import image.ImagePrepration;
+import image_char_matching.BrightnessDitherer;
+import image_char_matching.BrightnessLookupTable;
+import image_char_matching.SubImgCharMatcher;
+
+import java.awt.Dimension;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts uploaded images to ASCII art over HTTP, using the JDK's built-in server.
+ * A client POSTs the encoded image to {@value #CONTEXT} with the query parameters
+ * {@code res} (characters per row), {@code chars} (characters or "all"), {@code round}
+ * (abs, up or down), {@code exact} (true for an exact row width without padding) and
+ * {@code dither} (none, floyd or bayer),
+ * and receives the art as plain text.
+ * Requests run on virtual threads when the JVM provides them, otherwise on a cached
+ * pool. All requests share the glyph brightness table and one immutable
+ * {@link BrightnessLookupTable} per charset and rounding method. The pixels of the
+ * images being converted at once are capped, and so are the bytes of the uploads being
+ * read and held, so bursts of large uploads wait instead of exhausting the heap.
+ * The server listens on the loopback interface unless another address is given
+ * explicitly.
+ * @author Tomer Kadosh
+ * @see Shell#main(String[])
+ */
+public class AsciiArtServer {
+    /** Path conversions are posted to */
+    public static final String CONTEXT = "/convert";
+    /** Default cap on the pixels of all images converted at once */
+    public static final int DEFAULT_MAX_IN_FLIGHT_PIXELS = 32 << 20;
+    /** Optional flag followed by the address to listen on instead of loopback */
+    public static final String BIND = "--bind";
+    /** Usage line printed for malformed server arguments */
+    public static final String USAGE = "Usage: " + Shell.SERVE +
+            " <port> [max in-flight megapixels] [" + BIND + " <address>]";
+
+    /** Largest accepted upload */
+    private static final int MAX_UPLOAD_BYTES = 32 << 20;
+    /** Cap on the bytes of all uploads held at once, a few of the largest uploads */
+    private static final int MAX_IN_FLIGHT_UPLOAD_BYTES = 4 * MAX_UPLOAD_BYTES;
+    /** Pixel permits charged per entry of an integral table, a long per entry */
+    private static final int INTEGRAL_ENTRY_PERMITS = Long.BYTES / Integer.BYTES;
+    /** Lookup tables kept for distinct charset and rounding method combinations */
+    private static final int LOOKUP_TABLE_CACHE_SIZE = 64;
+    /** Longest a request waits for pixel budget before it is rejected */
+    private static final long ADMISSION_TIMEOUT_SECONDS = 30;
+    private static final int MEGAPIXEL = 1 << 20;
+    private static final String POST = "POST";
+    private static final String RESOLUTION_PARAMETER = "res";
+    private static final String CHARSET_PARAMETER = "chars";
+    private static final String ROUNDING_PARAMETER = "round";
+    private static final String EXACT_PARAMETER = "exact";
+    private static final String DITHER_PARAMETER = "dither";
+    private static final String TEXT_CONTENT_TYPE = "text/plain; charset=utf-8";
+    private static final String CONTENT_LENGTH = "Content-Length";
+    private static final int OK = 200;
+    private static final int BAD_REQUEST = 400;
+    private static final int METHOD_NOT_ALLOWED = 405;
+    private static final int PAYLOAD_TOO_LARGE = 413;
+    private static final int UNSUPPORTED_MEDIA_TYPE = 415;
+    private static final int INTERNAL_SERVER_ERROR = 500;
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    /** Pixel budget of the images being converted, one permit per pixel */
+    private final Semaphore inFlightPixels;
+    /** Byte budget of the uploads being read or converted, one permit per byte */
+    private final Semaphore inFlightUploadBytes = new Semaphore(MAX_IN_FLIGHT_UPLOAD_BYTES, true);
+    private final int maxInFlightPixels;
+    /** Lookup tables shared by all requests, by charset and rounding method */
+    private final Map<LookupTableKey, BrightnessLookupTable> lookupTables =
+            Collections.synchronizedMap(new LruCache<>(LOOKUP_TABLE_CACHE_SIZE));
+
+    /**
+     * Charset and rounding method that determine a lookup table.
+     * @param charset Distinct characters of the charset, sorted
+     * @param roundingMethod Name of the rounding method
+     */
+    private record LookupTableKey(String charset, String roundingMethod) {
+    }
+
+    /**
+     * Creates a server listening on a loopback port, so only the local machine can
+     * reach it. It does not accept requests until started.
+     *
+     * @param port Port to listen on, 0 for any free port
+     * @param maxInFlightPixels Cap on the pixels of all images converted at once
+     * @throws IOException if the port cannot be bound
+     */
+    public AsciiArtServer(int port, int maxInFlightPixels) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port, maxInFlightPixels);
+    }
+
+    /**
+     * Creates a server listening on a port of the given address. It does not accept
+     * requests until started.
+     *
+     * @param bindAddress Address to listen on, the wildcard address for every interface
+     * @param port Port to listen on, 0 for any free port
+     * @param maxInFlightPixels Cap on the pixels of all images converted at once
+     * @throws IOException if the port cannot be bound
+     */
+    public AsciiArtServer(InetAddress bindAddress, int port, int maxInFlightPixels)
+            throws IOException {
+        if (maxInFlightPixels < 1) {
+            throw new IllegalArgumentException("Pixel cap must be positive");
+        }
+        this.maxInFlightPixels = maxInFlightPixels;
+        this.inFlightPixels = new Semaphore(maxInFlightPixels, true);
+        this.executor = requestExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        server.setExecutor(executor);
+        server.createContext(CONTEXT, this::handle);
+    }
+
+    /**
+     * Starts accepting requests on background threads.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, waiting for those in progress to finish.
+     *
+     * @param delaySeconds Longest time to wait for requests in progress
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    /**
+     * @return The port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return The address the server listens on
+     */
+    public InetAddress getBindAddress() {
+        return server.getAddress().getAddress();
+    }
+
+    /**
+     * Handles a conversion request, answering every failure with an error status and
+     * its message. Unexpected failures are logged and answered with a fixed internal
+     * error, so the client always receives a status but never internal details.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try {
+                if (!exchange.getRequestMethod().equals(POST)) {
+                    respond(exchange, METHOD_NOT_ALLOWED, "Use " + POST);
+                    return;
+                }
+                Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+                receive(exchange, parameters);
+            } catch (IllegalArgumentException e) {
+                respond(exchange, BAD_REQUEST, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                respond(exchange, SERVICE_UNAVAILABLE, "Interrupted");
+            } catch (RuntimeException e) {
+                // Details stay in the server's log; the client only learns that it failed
+                System.err.println("Error: " + exchange.getRequestURI());
+                e.printStackTrace();
+                respond(exchange, INTERNAL_SERVER_ERROR, "Conversion failed");
+            }
+        }
+    }
+
+    /**
+     * Reads the upload once its bytes fit in the in-flight budget, then converts it.
+     * The declared length is reserved up front; uploads without one reserve the
+     * largest accepted size until their actual size is known.
+     */
+    private void receive(HttpExchange exchange, Map<String, String> parameters)
+            throws IOException, InterruptedException {
+        String declaredLength = exchange.getRequestHeaders().getFirst(CONTENT_LENGTH);
+        long length = declaredLength == null ? MAX_UPLOAD_BYTES + 1 :
+                Long.parseLong(declaredLength);
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative " + CONTENT_LENGTH);
+        }
+        if (declaredLength != null && length > MAX_UPLOAD_BYTES) {
+            respond(exchange, PAYLOAD_TOO_LARGE, "Upload exceeds " + MAX_UPLOAD_BYTES + " bytes");
+            return;
+        }
+
+        int reserved = (int) length;
+        if (!inFlightUploadBytes.tryAcquire(reserved, ADMISSION_TIMEOUT_SECONDS,
+                TimeUnit.SECONDS)) {
+            respond(exchange, SERVICE_UNAVAILABLE, "Server busy, retry later");
+            return;
+        }
+        try {
+            byte[] upload = exchange.getRequestBody().readNBytes(reserved);
+            if (upload.length > MAX_UPLOAD_BYTES) {
+                respond(exchange, PAYLOAD_TOO_LARGE,
+                        "Upload exceeds " + MAX_UPLOAD_BYTES + " bytes");
+                return;
+            }
+            // Keep only what the upload actually holds
+            inFlightUploadBytes.release(reserved - upload.length);
+            reserved = upload.length;
+            convert(exchange, parameters, upload);
+        } finally {
+            inFlightUploadBytes.release(reserved);
+        }
+    }
+
+    /**
+     * Converts an uploaded image once its pixels fit in the in-flight budget. Exact
+     * widths are also charged for the luminance integral table they build.
+     */
+    private void convert(HttpExchange exchange, Map<String, String> parameters, byte[] upload)
+            throws IOException, InterruptedException {
+        int resolution = parseResolution(parameters.get(RESOLUTION_PARAMETER));
+        BrightnessLookupTable lookupTable = lookupTable(
+                parameters.getOrDefault(CHARSET_PARAMETER, new String(Shell.DEFAULT_CHAR)),
+                parameters.getOrDefault(ROUNDING_PARAMETER, Shell.ABS));
+        boolean exactWidth = Boolean.parseBoolean(parameters.get(EXACT_PARAMETER));
+        String dithering = parameters.getOrDefault(DITHER_PARAMETER, BrightnessDitherer.NONE);
+        if (!BrightnessDitherer.isMode(dithering)) {
+            throw new IncorrectFormatException(AsciiArtConstant.FORMAT_ERROR_DITHER);
+        }
+
+        Dimension size;
+        try {
+            size = Image.readSize(new ByteArrayInputStream(upload));
+        } catch (IOException e) {
+            respond(exchange, UNSUPPORTED_MEDIA_TYPE, e.getMessage());
+            return;
+        }
+        // The decoded pixels, plus the integral table an exact width builds over them
+        long cost = (long) size.width * size.height;
+        if (exactWidth) {
+            cost += INTEGRAL_ENTRY_PERMITS * (size.width + 1L) * (size.height + 1L);
+        }
+        if (cost > maxInFlightPixels) {
+            respond(exchange, PAYLOAD_TOO_LARGE,
+                    "Image exceeds the budget of " + maxInFlightPixels + " pixels");
+            return;
+        }
+        if (resolution > size.width) {
+            throw new UserInputException(AsciiArtConstant.FORMAT_ERROR_RESOLUTION_BOUNDARIES);
+        }
+
+        int permits = (int) cost;
+        if (!inFlightPixels.tryAcquire(permits, ADMISSION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            respond(exchange, SERVICE_UNAVAILABLE, "Server busy, retry later");
+            return;
+        }
+        char[][] asciiArt;
+        try {
+            Image image;
+            try {
+                image = new Image(new ByteArrayInputStream(upload));
+            } catch (IOException e) {
+                // The header was readable, but the pixel data is corrupt or truncated
+                respond(exchange, UNSUPPORTED_MEDIA_TYPE, e.getMessage());
+                return;
+            }
+            ImagePrepration preparation = new ImagePrepration(image, resolution);
+            // Requests already run concurrently, so each converts on its own thread
+            double[][] brightness = exactWidth ? preparation.calculateBrightnessAreaWeighted() :
+                    preparation.calculateBrightnessForALL(image, resolution);
+            asciiArt = AsciiArtAlgorithm.mapToChars(brightness, lookupTable, dithering);
+        } finally {
+            inFlightPixels.release(permits);
+        }
+        respond(exchange, OK, toText(asciiArt));
+    }
+
+    /**
+     * Returns the shared lookup table of a charset and rounding method, building it on
+     * first use. Charsets with the same characters in any order share a table.
+     *
+     * @param charsetArg Characters of the charset, or "all"
+     * @param roundingMethod Name of the rounding method
+     * @return The lookup table
+     * @throws IncorrectFormatException if the charset or rounding method is invalid
+     */
+    private BrightnessLookupTable lookupTable(String charsetArg, String roundingMethod)
+            throws IncorrectFormatException {
+        char[] charset = BatchConverter.parseCharset(charsetArg);
+        if (charset.length < 2) {
+            throw new IncorrectFormatException(AsciiArtConstant.USER_ERROR_CHARSET);
+        }
+        if (!roundingMethod.equals(Shell.ABS) && !roundingMethod.equals(Shell.UP) &&
+                !roundingMethod.equals(Shell.DOWN)) {
+            throw new IncorrectFormatException(AsciiArtConstant.FORMAT_ERROR_ROUND);
+        }
+        Arrays.sort(charset);
+        LookupTableKey key = new LookupTableKey(new String(charset), roundingMethod);
+        BrightnessLookupTable table = lookupTables.get(key);
+        if (table == null) {
+            // Racing requests build equal tables, so no lock is held while building
+            SubImgCharMatcher charMatcher = new SubImgCharMatcher(charset);
+            charMatcher.setRoundingMethod(roundingMethod);
+            table = charMatcher.getLookupTable();
+            lookupTables.put(key, table);
+        }
+        return table;
+    }
+
+    private static int parseResolution(String resolutionArg) throws IncorrectFormatException {
+        try {
+            int resolution = Integer.parseInt(resolutionArg);
+            if (resolution < 1) {
+                throw new IncorrectFormatException(AsciiArtConstant.FORMAT_ERROR_RESOLUTION);
+            }
+            return resolution;
+        } catch (NumberFormatException e) {
+            throw new IncorrectFormatException(AsciiArtConstant.FORMAT_ERROR_RESOLUTION);
+        }
+    }
+
+    /**
+     * Splits a raw query string into decoded parameters.
+     */
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static String toText(char[][] asciiArt) {
+        StringBuilder text = new StringBuilder(asciiArt.length * (asciiArt[0].length + 1));
+        for (char[] row : asciiArt) {
+            text.append(row).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", TEXT_CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Creates the executor running requests: one virtual thread per request when the
+     * JVM supports them, looked up reflectively so the server also runs on older JVMs,
+     * and a cached thread pool otherwise.
+     */
+    private static ExecutorService requestExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Starts a server from command line arguments following the server flag.
+     * The server runs until the process is stopped.
+     *
+     * @param args Port, optionally the in-flight pixel cap in megapixels, and optionally
+     *             {@value #BIND} with the address to listen on
+     */
+    static void runFromArgs(String[] args) {
+        if (args.length < 1) {
+            System.err.println(USAGE);
+            return;
+        }
+        try {
+            int port = Integer.parseInt(args[0]);
+            int maxPixels = DEFAULT_MAX_IN_FLIGHT_PIXELS;
+            String bindAddress = null;
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].equals(BIND) && i + 1 < args.length) {
+                    bindAddress = args[++i];
+                } else if (i == 1) {
+                    maxPixels = Math.multiplyExact(Integer.parseInt(args[i]), MEGAPIXEL);
+                } else {
+                    System.err.println(USAGE);
+                    return;
+                }
+            }
+            AsciiArtServer server = bindAddress == null ? new AsciiArtServer(port, maxPixels) :
+                    new AsciiArtServer(InetAddress.getByName(bindAddress), port, maxPixels);
+            server.start();
+            System.out.println("Listening on " + server.getBindAddress().getHostAddress() + ":" +
+                    server.getPort() + CONTEXT);
+        } catch (NumberFormatException | ArithmeticException e) {
+            System.err.println(USAGE);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+}
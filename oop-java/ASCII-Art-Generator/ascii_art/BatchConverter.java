@@ -0,0 +1,358 @@
+package ascii_art;
+
+import ascii_output.StreamingHtmlAsciiOutput;
+import image.Image;
+import image.ImagePrepration;
+import image.StreamingBrightnessReader;
+import image_char_matching.BrightnessDitherer;
+import image_char_matching.BrightnessLookupTable;
+import image_char_matching.SubImgCharMatcher;
+
+import javax.imageio.ImageIO;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Converts every image of a directory to ASCII art without an interactive shell.
+ * Images are converted on a fixed worker pool; all workers share one immutable
+ * {@link BrightnessLookupTable}, built once from the requested charset and rounding method.
+ * @author Tomer Kadosh
+ * @see Shell#main(String[])
+ */
+public class BatchConverter {
+    /** Plain text output format, one line per row */
+    public static final String TEXT = "txt";
+    /** Number of arguments following the batch flag */
+    public static final int ARGUMENT_COUNT = 6;
+    /** Optional argument that decodes images in strips */
+    public static final String STREAM = "--stream";
+    /** Optional argument that decodes only the pixels the resolution needs */
+    public static final String SUBSAMPLE = "--subsample";
+    /** Optional argument that prints per-stage statistics after the run */
+    public static final String STATS = "--stats";
+    /** Optional argument followed by the dithering mode */
+    public static final String DITHER = "--dither";
+    /** Usage line printed for malformed batch arguments */
+    public static final String USAGE = "Usage: " + Shell.BATCH +
+            " <input dir> <output dir> <resolution> <chars|all> <abs|up|down> <txt|html> [" +
+            STREAM + "] [" + SUBSAMPLE + "] [" + STATS + "] [" + DITHER + " <none|floyd|bayer>]";
+    /** File extensions of the formats ImageIO can decode */
+    private static final Set<String> READABLE_SUFFIXES = Set.of(ImageIO.getReaderFileSuffixes());
+
+    private final File inputDir;
+    private final File outputDir;
+    private final int resolution;
+    private final String format;
+    /** Lookup table shared by all workers */
+    private final BrightnessLookupTable lookupTable;
+    private final int workers;
+    /** Whether images are decoded in strips instead of all at once */
+    private final boolean streaming;
+    /** Whether images are decoded subsampled to the resolution */
+    private final boolean subsampling;
+    /** Dithering mode applied when mapping brightness to characters */
+    private String dithering = BrightnessDitherer.NONE;
+    /** Statistics of all images converted so far */
+    private final PipelineStats stats = new PipelineStats();
+
+    /**
+     * Creates a batch converter.
+     *
+     * @param inputDir Directory holding the images to convert
+     * @param outputDir Directory to write the results to
+     * @param resolution Number of characters per output row
+     * @param charset Characters to use
+     * @param roundingMethod Rounding method name ("abs", "up" or "down")
+     * @param format Output format ({@link #TEXT} or {@link Shell#HTML})
+     * @param workers Number of images converted concurrently
+     * @param streaming Whether to decode images in strips, bounding memory per worker
+     * @param subsampling Whether to decode only as many pixels as the resolution needs
+     * @throws IncorrectFormatException if a setting is invalid
+     */
+    public BatchConverter(File inputDir, File outputDir, int resolution, char[] charset,
+                          String roundingMethod, String format, int workers, boolean streaming,
+                          boolean subsampling) throws IncorrectFormatException {
+        if (charset.length < 2) {
+            throw new IncorrectFormatException(AsciiArtConstant.USER_ERROR_CHARSET);
+        }
+        if (!roundingMethod.equals(SubImgCharMatcher.ABS) &&
+                !roundingMethod.equals(SubImgCharMatcher.UP) &&
+                !roundingMethod.equals(SubImgCharMatcher.DOWN)) {
+            throw new IncorrectFormatException(AsciiArtConstant.FORMAT_ERROR_ROUND);
+        }
+        if (!format.equals(TEXT) && !format.equals(Shell.HTML)) {
+            throw new IncorrectFormatException(AsciiArtConstant.FORMAT_ERROR_OUTPUT);
+        }
+        if (resolution < 1 || workers < 1) {
+            throw new IncorrectFormatException(AsciiArtConstant.FORMAT_ERROR_RESOLUTION);
+        }
+        this.inputDir = inputDir;
+        this.outputDir = outputDir;
+        this.resolution = resolution;
+        this.format = format;
+        this.workers = workers;
+        this.streaming = streaming;
+        this.subsampling = subsampling;
+
+        SubImgCharMatcher charMatcher = new SubImgCharMatcher(charset);
+        charMatcher.setRoundingMethod(roundingMethod);
+        this.lookupTable = charMatcher.getLookupTable();
+    }
+
+    /**
+     * Sets the dithering mode applied when mapping brightness to characters.
+     *
+     * @param dithering Dithering mode, see {@link BrightnessDitherer}
+     * @throws IncorrectFormatException if the mode is unknown
+     */
+    public void setDithering(String dithering) throws IncorrectFormatException {
+        if (!BrightnessDitherer.isMode(dithering)) {
+            throw new IncorrectFormatException(AsciiArtConstant.FORMAT_ERROR_DITHER);
+        }
+        this.dithering = dithering;
+    }
+
+    /**
+     * Converts all readable images of the input directory.
+     * A failing image is reported and does not stop the others.
+     *
+     * @return Number of images that failed to convert
+     * @throws IOException if the directories cannot be used
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public int run() throws IOException, InterruptedException {
+        File[] images = inputDir.listFiles(this::isImageFile);
+        if (images == null) {
+            throw new IOException("Cannot list directory " + inputDir);
+        }
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Cannot create directory " + outputDir);
+        }
+        Arrays.sort(images);
+
+        AtomicInteger failures = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> results = new ArrayList<>(images.length);
+            for (File imageFile : images) {
+                results.add(pool.submit(() -> {
+                    try {
+                        convert(imageFile);
+                    } catch (IOException | RuntimeException e) {
+                        failures.incrementAndGet();
+                        System.err.println("Error: " + imageFile.getName() + ": " + e.getMessage());
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    failures.incrementAndGet();
+                }
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        return failures.get();
+    }
+
+    /**
+     * Converts a single image and writes the result next to the others.
+     *
+     * @param imageFile The image to convert
+     * @throws IOException if the image cannot be read or the result cannot be written
+     */
+    private void convert(File imageFile) throws IOException {
+        PipelineStats imageStats = new PipelineStats();
+        double[][] brightness = calculateBrightness(imageFile, imageStats);
+        long cells = (long) brightness.length * brightness[0].length;
+        imageStats.start();
+        char[][] asciiArt = AsciiArtAlgorithm.mapToChars(brightness, lookupTable, dithering);
+        imageStats.stop(PipelineStats.Stage.MAPPING, cells);
+        imageStats.start();
+        writeResult(imageFile, asciiArt);
+        imageStats.stop(PipelineStats.Stage.OUTPUT, cells);
+        stats.add(imageStats);
+    }
+
+    /**
+     * Gets the statistics of all images converted so far. Stage times are summed over
+     * the workers, so they measure work rather than elapsed time.
+     *
+     * @return The accumulated statistics
+     */
+    public PipelineStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Calculates the brightness grid of an image file.
+     *
+     * Streaming interleaves decoding with the brightness pass, so both are measured
+     * as the brightness stage; otherwise padding is part of the direct pass.
+     *
+     * @param imageFile The image to read
+     * @param imageStats Statistics to measure the stages in
+     * @return The brightness grid at the batch resolution
+     * @throws IOException if the image cannot be read
+     */
+    private double[][] calculateBrightness(File imageFile, PipelineStats imageStats)
+            throws IOException {
+        if (streaming) {
+            imageStats.start();
+            double[][] brightness = StreamingBrightnessReader.readBrightness(imageFile.getPath(),
+                    resolution, StreamingBrightnessReader.DEFAULT_STRIP_HEIGHT, subsampling);
+            imageStats.stop(PipelineStats.Stage.BRIGHTNESS, 0);
+            return brightness;
+        }
+        imageStats.start();
+        Image image = subsampling ? Image.readSubsampled(imageFile.getPath(), resolution) :
+                new Image(imageFile.getPath());
+        long pixels = (long) image.getWidth() * image.getHeight();
+        imageStats.stop(PipelineStats.Stage.DECODE, pixels);
+        if (resolution > image.getWidth()) {
+            throw new UserInputException(AsciiArtConstant.FORMAT_ERROR_RESOLUTION_BOUNDARIES);
+        }
+        // A single resolution per image, so a direct pass is cheaper than an integral table
+        imageStats.start();
+        double[][] brightness = new ImagePrepration(image, resolution)
+                .calculateBrightnessForALL(image, resolution);
+        imageStats.stop(PipelineStats.Stage.BRIGHTNESS, pixels);
+        return brightness;
+    }
+
+    /**
+     * Writes the ASCII art of an image to the output directory in the batch format.
+     *
+     * @param imageFile The converted image
+     * @param asciiArt Its ASCII art
+     * @throws IOException if the result cannot be written
+     */
+    private void writeResult(File imageFile, char[][] asciiArt) throws IOException {
+        String baseName = stripExtension(imageFile.getName());
+        if (format.equals(Shell.HTML)) {
+            File outFile = new File(outputDir, baseName + "." + Shell.HTML);
+            new StreamingHtmlAsciiOutput(outFile.getPath(), Shell.FONT_NAME).out(asciiArt);
+        } else {
+            writeText(new File(outputDir, baseName + "." + TEXT), asciiArt);
+        }
+    }
+
+    /**
+     * Writes ASCII art to a text file, one line per row.
+     *
+     * @param outFile The file to write
+     * @param asciiArt The art to write
+     * @throws IOException if the file cannot be written
+     */
+    static void writeText(File outFile, char[][] asciiArt) throws IOException {
+        try (PrintWriter writer = new PrintWriter(outFile, StandardCharsets.UTF_8)) {
+            for (char[] row : asciiArt) {
+                writer.println(row);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a file has an extension ImageIO can read.
+     */
+    private boolean isImageFile(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        int dot = name.lastIndexOf('.');
+        return file.isFile() && dot > 0 && READABLE_SUFFIXES.contains(name.substring(dot + 1));
+    }
+
+    private static String stripExtension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    /**
+     * Parses a charset argument: "all" for the whole supported range,
+     * otherwise the characters themselves.
+     *
+     * @param charsetArg The argument
+     * @return The characters it describes
+     * @throws IncorrectFormatException if a character is outside the supported range
+     */
+    static char[] parseCharset(String charsetArg) throws IncorrectFormatException {
+        if (charsetArg.equals(Shell.ALL)) {
+            char[] all = new char[Shell.LAST_CHAR - Shell.FIRST_CHAR + 1];
+            for (char c = Shell.FIRST_CHAR; c <= Shell.LAST_CHAR; c++) {
+                all[c - Shell.FIRST_CHAR] = c;
+            }
+            return all;
+        }
+        for (char c : charsetArg.toCharArray()) {
+            if (c < Shell.FIRST_CHAR || c > Shell.LAST_CHAR) {
+                throw new IncorrectFormatException(AsciiArtConstant.FORMAT_ERROR_ADD);
+            }
+        }
+        return charsetArg.chars().distinct().collect(StringBuilder::new,
+                StringBuilder::appendCodePoint, StringBuilder::append).toString().toCharArray();
+    }
+
+    /**
+     * Runs a batch conversion from command line arguments following the batch flag.
+     *
+     * @param args Input dir, output dir, resolution, charset, rounding method and format
+     */
+    static void runFromArgs(String[] args) {
+        if (args.length < ARGUMENT_COUNT) {
+            System.err.println(USAGE);
+            return;
+        }
+        boolean streaming = false;
+        boolean subsampling = false;
+        boolean printStats = false;
+        String dithering = BrightnessDitherer.NONE;
+        for (int i = ARGUMENT_COUNT; i < args.length; i++) {
+            if (args[i].equals(STREAM)) {
+                streaming = true;
+            } else if (args[i].equals(SUBSAMPLE)) {
+                subsampling = true;
+            } else if (args[i].equals(STATS)) {
+                printStats = true;
+            } else if (args[i].equals(DITHER) && i + 1 < args.length) {
+                dithering = args[++i];
+            } else {
+                System.err.println(USAGE);
+                return;
+            }
+        }
+        try {
+            BatchConverter converter = new BatchConverter(new File(args[0]), new File(args[1]),
+                    Integer.parseInt(args[2]), parseCharset(args[3]), args[4], args[5],
+                    Shell.PARALLELISM, streaming, subsampling);
+            converter.setDithering(dithering);
+            int failures = converter.run();
+            if (failures > 0) {
+                System.err.println("Error: " + failures + " images failed to convert");
+            }
+            if (printStats) {
+                System.out.print(converter.getStats().report());
+            }
+        } catch (NumberFormatException e) {
+            System.err.println(AsciiArtConstant.FORMAT_ERROR_RESOLUTION);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
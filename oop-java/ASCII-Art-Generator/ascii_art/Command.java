@@ -21,7 +21,15 @@ public enum Command {
     /** Displays current character set */
     CHARS("chars"),
     /** Sets brightness rounding method */
-    ROUND("round");
+    ROUND("round"),
+    /** Turns color output on or off */
+    COLOR("color"),
+    /** Displays per-stage statistics of the last ASCII art run */
+    STATS("stats"),
+    /** Sets whether blocks are matched to characters by brightness or by shape */
+    MATCH("match"),
+    /** Sets the dithering mode */
+    DITHER("dither");
 
     /** Input string that maps to this command */
     private final String input;
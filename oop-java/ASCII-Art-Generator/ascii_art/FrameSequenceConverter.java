@@ -0,0 +1,166 @@
+package ascii_art;
+
+import image.AnimatedGifReader;
+import image.Image;
+import image.IncrementalBrightness;
+import image_char_matching.BrightnessLookupTable;
+import image_char_matching.SubImgCharMatcher;
+
+import javax.imageio.ImageIO;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Converts a frame sequence, an animated GIF or a directory of numbered frames, to one
+ * ASCII art text file per frame.
+ * Frames are fed to an {@link IncrementalBrightness}, so GIF blocks outside the region a
+ * frame redraws are not read, and only blocks whose luminance changed since the previous
+ * frame get a new brightness; mostly static sequences such as screen recordings reuse
+ * most of their blocks.
+ * @author Tomer Kadosh
+ * @see Shell#main(String[])
+ */
+public class FrameSequenceConverter {
+    /** Number of arguments following the frames flag */
+    public static final int ARGUMENT_COUNT = 5;
+    /** Usage line printed for malformed arguments */
+    public static final String USAGE = "Usage: " + Shell.FRAMES +
+            " <gif file|frame dir> <output dir> <resolution> <chars|all> <abs|up|down>";
+    /** Name format of the frame output files */
+    public static final String FRAME_FILE_FORMAT = "frame_%05d." + BatchConverter.TEXT;
+    /** Extension of animated GIF files */
+    private static final String GIF = "gif";
+    /** File extensions of the formats ImageIO can decode */
+    private static final Set<String> READABLE_SUFFIXES = Set.of(ImageIO.getReaderFileSuffixes());
+
+    private final File outputDir;
+    private final BrightnessLookupTable lookupTable;
+    private final IncrementalBrightness brightness;
+    private int frameIndex = 0;
+
+    /**
+     * Creates a converter writing frames to the given directory.
+     *
+     * @param outputDir Directory to write the frames to
+     * @param resolution Number of characters per output row
+     * @param charMatcher Matcher holding the charset and rounding method to use
+     */
+    public FrameSequenceConverter(File outputDir, int resolution, SubImgCharMatcher charMatcher) {
+        this.outputDir = outputDir;
+        this.lookupTable = charMatcher.getLookupTable();
+        this.brightness = new IncrementalBrightness(resolution);
+    }
+
+    /**
+     * Converts every frame of an animated GIF.
+     *
+     * @param gifFile The GIF to convert
+     * @throws IOException if the GIF cannot be read or a frame cannot be written
+     */
+    public void convertGif(File gifFile) throws IOException {
+        try (AnimatedGifReader reader = new AnimatedGifReader(gifFile.getPath())) {
+            while (reader.hasNextFrame()) {
+                Image frame = reader.nextFrame();
+                writeFrame(brightness.update(frame, reader.getChangedRegion()));
+            }
+        }
+    }
+
+    /**
+     * Converts the images of a directory as frames, in file name order.
+     *
+     * @param frameDir Directory holding the frames
+     * @throws IOException if a frame cannot be read or written
+     */
+    public void convertDirectory(File frameDir) throws IOException {
+        File[] frames = frameDir.listFiles(file ->
+                file.isFile() && READABLE_SUFFIXES.contains(extension(file)));
+        if (frames == null) {
+            throw new IOException("Cannot list directory " + frameDir);
+        }
+        Arrays.sort(frames);
+        for (File frameFile : frames) {
+            writeFrame(brightness.update(new Image(frameFile.getPath())));
+        }
+    }
+
+    /**
+     * Maps a frame's brightness grid to characters and writes it as the next frame file.
+     */
+    private void writeFrame(double[][] frameBrightness) throws IOException {
+        char[][] asciiArt = AsciiArtAlgorithm.mapToChars(frameBrightness, lookupTable);
+        BatchConverter.writeText(new File(outputDir,
+                String.format(FRAME_FILE_FORMAT, frameIndex++)), asciiArt);
+    }
+
+    /**
+     * @return Number of frames written so far
+     */
+    public int getFrameCount() {
+        return frameIndex;
+    }
+
+    /**
+     * @return The tracker of recomputed and reused blocks
+     */
+    public IncrementalBrightness getBrightness() {
+        return brightness;
+    }
+
+    private static String extension(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(dot + 1) : "";
+    }
+
+    /**
+     * Converts a frame sequence from command line arguments following the frames flag.
+     *
+     * @param args Source, output dir, resolution, charset and rounding method
+     */
+    static void runFromArgs(String[] args) {
+        if (args.length != ARGUMENT_COUNT) {
+            System.err.println(USAGE);
+            return;
+        }
+        try {
+            File source = new File(args[0]);
+            File outputDir = new File(args[1]);
+            int resolution = Integer.parseInt(args[2]);
+            char[] charset = BatchConverter.parseCharset(args[3]);
+            if (charset.length < 2) {
+                throw new UserInputException(AsciiArtConstant.USER_ERROR_CHARSET);
+            }
+            SubImgCharMatcher charMatcher = new SubImgCharMatcher(charset);
+            if (!args[4].equals(SubImgCharMatcher.ABS) && !args[4].equals(SubImgCharMatcher.UP) &&
+                    !args[4].equals(SubImgCharMatcher.DOWN)) {
+                throw new IncorrectFormatException(AsciiArtConstant.FORMAT_ERROR_ROUND);
+            }
+            charMatcher.setRoundingMethod(args[4]);
+            if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+                throw new IOException("Cannot create directory " + outputDir);
+            }
+
+            FrameSequenceConverter converter =
+                    new FrameSequenceConverter(outputDir, resolution, charMatcher);
+            if (source.isDirectory()) {
+                converter.convertDirectory(source);
+            } else if (extension(source).equals(GIF)) {
+                converter.convertGif(source);
+            } else {
+                throw new IOException("Not a GIF or a frame directory: " + source);
+            }
+            IncrementalBrightness stats = converter.getBrightness();
+            System.out.println("Converted " + converter.getFrameCount() + " frames, summed " +
+                    stats.getRecomputedBlocks() + " and changed " + stats.getChangedBlocks() +
+                    " of " + stats.getTotalBlocks() + " blocks");
+        } catch (NumberFormatException e) {
+            System.err.println(AsciiArtConstant.FORMAT_ERROR_RESOLUTION);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+}
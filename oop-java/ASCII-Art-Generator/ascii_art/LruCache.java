@@ -0,0 +1,38 @@
+package ascii_art;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded map that evicts its least recently used entry when full.
+ * Not thread-safe.
+ * @param <K> Key type
+ * @param <V> Value type
+ * @author Tomer Kadosh
+ */
+public class LruCache<K, V> extends LinkedHashMap<K, V> {
+    private static final long serialVersionUID = 1L;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /** Maximum number of entries kept */
+    private final int capacity;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param capacity Maximum number of entries kept
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public LruCache(int capacity) {
+        super(capacity + 1, LOAD_FACTOR, true);
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return size() > capacity;
+    }
+}
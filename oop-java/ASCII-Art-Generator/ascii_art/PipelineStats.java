@@ -0,0 +1,173 @@
+package ascii_art;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+/**
+ * Wall time, allocated bytes and throughput of each stage of an ASCII art conversion.
+ * A stage is measured between {@link #start()} and {@link #stop(Stage, long)} on the
+ * same thread. Both only read a clock and the thread's allocation counter, so
+ * statistics can stay on for every conversion.
+ * Allocation is counted for the measuring thread only; work a stage hands to a
+ * fork-join pool shows in its time but not in its allocated bytes.
+ * @author Tomer Kadosh
+ */
+public class PipelineStats {
+    private static final String PIXELS = "px";
+    private static final String CELLS = "cells";
+    private static final String NOT_MEASURED = "-";
+    private static final String NOT_AVAILABLE = "n/a";
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final long BYTES_PER_KILOBYTE = 1024;
+    /** Converts units per nanosecond to millions of units per second */
+    private static final double MILLIONS_PER_SECOND = 1e3;
+    private static final String ROW_FORMAT = "%-12s %6s %12s %14s %18s%n";
+
+    /**
+     * Allocation counter of the JVM, or null when it cannot count per-thread allocation.
+     */
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocationCounter();
+
+    /**
+     * A stage of the conversion pipeline.
+     */
+    public enum Stage {
+        /** Reading and decoding the image file */
+        DECODE("decode", PIXELS),
+        /** Padding the image or building its luminance integral table */
+        PREPARATION("preparation", PIXELS),
+        /** Computing the brightness of every block */
+        BRIGHTNESS("brightness", PIXELS),
+        /** Mapping brightness to characters */
+        MAPPING("mapping", CELLS),
+        /** Writing the art to its output */
+        OUTPUT("output", CELLS);
+
+        /** Name shown in reports */
+        private final String label;
+        /** Unit the throughput of the stage is measured in */
+        private final String unit;
+
+        Stage(String label, String unit) {
+            this.label = label;
+            this.unit = unit;
+        }
+    }
+
+    private final long[] nanos = new long[Stage.values().length];
+    private final long[] allocatedBytes = new long[Stage.values().length];
+    private final long[] units = new long[Stage.values().length];
+    private final int[] runs = new int[Stage.values().length];
+    /** Clock reading of the stage being measured */
+    private long startNanos;
+    /** Allocation counter reading of the stage being measured */
+    private long startBytes;
+
+    /**
+     * Starts measuring a stage on the calling thread.
+     */
+    public void start() {
+        startBytes = allocatedBytes();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Stops measuring a stage started by {@link #start()} on the calling thread and
+     * adds the measurement to it.
+     *
+     * @param stage The stage that ran
+     * @param processed Pixels or cells the stage processed, 0 if unknown
+     */
+    public void stop(Stage stage, long processed) {
+        long elapsed = System.nanoTime() - startNanos;
+        long bytes = allocatedBytes();
+        int index = stage.ordinal();
+        nanos[index] += elapsed;
+        allocatedBytes[index] += bytes < 0 ? 0 : bytes - startBytes;
+        units[index] += processed;
+        runs[index]++;
+    }
+
+    /**
+     * Adds the measurements of another statistics object to this one, such as the
+     * statistics of one image to those of a whole batch.
+     *
+     * @param other The statistics to add, no longer being measured
+     */
+    public synchronized void add(PipelineStats other) {
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] += other.nanos[i];
+            allocatedBytes[i] += other.allocatedBytes[i];
+            units[i] += other.units[i];
+            runs[i] += other.runs[i];
+        }
+    }
+
+    /**
+     * Formats the statistics as a table with one row per stage. Stages that did not
+     * run, for example because their result was cached, are shown as {@value #NOT_MEASURED}.
+     *
+     * @return The report, ending with a line break
+     */
+    public synchronized String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, ROW_FORMAT,
+                "stage", "runs", "time ms", "allocated KB", "throughput"));
+        long totalNanos = 0;
+        long totalBytes = 0;
+        for (Stage stage : Stage.values()) {
+            int index = stage.ordinal();
+            if (runs[index] == 0) {
+                report.append(String.format(Locale.ROOT, ROW_FORMAT, stage.label,
+                        0, NOT_MEASURED, NOT_MEASURED, NOT_MEASURED));
+                continue;
+            }
+            totalNanos += nanos[index];
+            totalBytes += allocatedBytes[index];
+            report.append(String.format(Locale.ROOT, ROW_FORMAT, stage.label, runs[index],
+                    formatMillis(nanos[index]), formatKilobytes(allocatedBytes[index]),
+                    formatThroughput(units[index], nanos[index], stage.unit)));
+        }
+        report.append(String.format(Locale.ROOT, ROW_FORMAT, "total", "",
+                formatMillis(totalNanos), formatKilobytes(totalBytes), ""));
+        return report.toString();
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / NANOS_PER_MILLI);
+    }
+
+    private static String formatKilobytes(long bytes) {
+        return ALLOCATION == null ? NOT_AVAILABLE : Long.toString(bytes / BYTES_PER_KILOBYTE);
+    }
+
+    private static String formatThroughput(long processed, long nanos, String unit) {
+        if (processed == 0 || nanos == 0) {
+            return NOT_MEASURED;
+        }
+        return String.format(Locale.ROOT, "%.2f M%s/s",
+                processed * MILLIONS_PER_SECOND / nanos, unit);
+    }
+
+    /**
+     * Reads the bytes allocated so far by the calling thread.
+     *
+     * @return The allocated bytes, or -1 if the JVM cannot count them
+     */
+    private static long allocatedBytes() {
+        return ALLOCATION == null ? -1 : ALLOCATION.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean counter &&
+                counter.isThreadAllocatedMemorySupported()) {
+            if (!counter.isThreadAllocatedMemoryEnabled()) {
+                counter.setThreadAllocatedMemoryEnabled(true);
+            }
+            return counter;
+        }
+        return null;
+    }
+}
@@ -1,11 +1,17 @@
 package ascii_art;
 
 import ascii_output.AsciiOutput;
-import ascii_output.ConsoleAsciiOutput;
-import ascii_output.HtmlAsciiOutput;
+import ascii_output.AnsiColorAsciiOutput;
+import ascii_output.BufferedConsoleAsciiOutput;
+import ascii_output.ColorAsciiOutput;
+import ascii_output.StreamingHtmlAsciiOutput;
+import image.BlockMasks;
+import image.BlockStatistics;
 import image.Image;
+import image_char_matching.BrightnessDitherer;
 import image_char_matching.SubImgCharMatcher;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Map;
 import static java.lang.System.exit;
 
@@ -27,32 +33,86 @@ public class Shell {
     /** Font name for HTML output */
     public static final String FONT_NAME = "Courier New";
     /** Command line arguments */
-    public static final String UP = "up";
+    public static final String UP = SubImgCharMatcher.UP;
     /** Command line arguments */
-    public static final String DOWN = "down";
+    public static final String DOWN = SubImgCharMatcher.DOWN;
+    /** Command line arguments */
+    public static final String ABS = SubImgCharMatcher.ABS;
     /** Command line arguments */
     public static final String SPACE = "space";
     /** Command line arguments */
     public static final String ALL = "all";
     /** Command line arguments */
+    public static final String ON = "on";
+    /** Command line arguments */
+    public static final String OFF = "off";
+    /** Command line arguments */
+    public static final String BRIGHTNESS = "brightness";
+    /** Command line arguments */
+    public static final String SHAPE = "shape";
+    /** Command line arguments */
     public static final int LEGAL_RANGE_STRING = 3;
+    /** Command line flag selecting headless batch conversion */
+    public static final String BATCH = "--batch";
+    /** Command line flag selecting frame sequence conversion */
+    public static final String FRAMES = "--frames";
+    /** Command line flag selecting the HTTP conversion server */
+    public static final String SERVE = "--serve";
+    /** First character of the supported range */
+    public static final char FIRST_CHAR = 32;
+    /** Last character of the supported range */
+    public static final char LAST_CHAR = 125;
     /** Command line arguments */
 
     /** Default character set for ASCII art */
     public static char[] DEFAULT_CHAR = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9'};
     /** Initial resolution setting */
     public final static int DEFAULT_RESOLUTION = 2;
+    /** Number of threads used to compute brightness */
+    public final static int PARALLELISM = Runtime.getRuntime().availableProcessors();
+    /** Number of generated ASCII art results kept for repeated settings */
+    public final static int ART_CACHE_SIZE = 16;
+    /** Number of brightness grids kept, one per resolution */
+    public final static int BRIGHTNESS_CACHE_SIZE = 8;
     /** Default console output handler */
-    public final static AsciiOutput OUTPUT = new ConsoleAsciiOutput();
+    public final static AsciiOutput OUTPUT = new BufferedConsoleAsciiOutput();
 
     // Instance fields for shell state management
     private KeyboardInput keyboardInput = KeyboardInput.getObject();
     private int resolution;                // Current resolution setting
     private SubImgCharMatcher charMatcher; // Handles character-brightness matching
     private AsciiOutput output;            // Current output handler
+    private String outputName;             // Name of the current output target
+    private boolean colorMode;             // Whether characters are rendered in color
+    private boolean exactWidth;            // Whether rows have exactly resolution chars, unpadded
+    private boolean shapeMatching;         // Whether blocks are matched to glyphs by shape
+    private String dithering;              // Dithering mode of brightness matching
     private Image image;                   // Source image being processed
-    private int lastResolution;            // Caches last used resolution
-    private char[][] lastBrightness;       // Caches last generated ASCII art
+    private final LruCache<ArtKey, char[][]> artCache; // Caches generated ASCII art
+    private final LruCache<GridKey, double[][]> brightnessCache; // Grids of the image by resolution
+    private final LruCache<GridKey, int[][]> colorCache; // Block colors of the image by resolution
+    private final PipelineStats loadStats;  // Decoding of the source image
+    private PipelineStats lastStats;        // Stages of the last ASCII art run
+
+    /**
+     * Settings that determine the block grid of the image.
+     * @param resolution Output resolution
+     * @param exactWidth Whether blocks have fractional bounds over the unpadded image
+     */
+    private record GridKey(int resolution, boolean exactWidth) {
+    }
+
+    /**
+     * Settings that determine a generated ASCII art.
+     * @param grid Block grid of the image
+     * @param charsetVersion Charset version of the char matcher
+     * @param roundingMethod Name of the rounding method
+     * @param shapeMatching Whether blocks are matched by shape
+     * @param dithering Dithering mode
+     */
+    private record ArtKey(GridKey grid, long charsetVersion, String roundingMethod,
+                          boolean shapeMatching, String dithering) {
+    }
 
     /**
      * Initializes shell with default settings.
@@ -61,8 +121,17 @@ public class Shell {
         this.resolution = DEFAULT_RESOLUTION;
         this.charMatcher = new SubImgCharMatcher(DEFAULT_CHAR);
         this.output = OUTPUT;
+        this.outputName = CONSOLE;
+        this.colorMode = false;
+        this.exactWidth = false;
+        this.shapeMatching = false;
+        this.dithering = BrightnessDitherer.NONE;
         this.image = null;
-        this.lastBrightness = null;
+        this.artCache = new LruCache<>(ART_CACHE_SIZE);
+        this.brightnessCache = new LruCache<>(BRIGHTNESS_CACHE_SIZE);
+        this.colorCache = new LruCache<>(BRIGHTNESS_CACHE_SIZE);
+        this.loadStats = new PipelineStats();
+        this.lastStats = null;
     }
 
     /**
@@ -72,7 +141,9 @@ public class Shell {
     public void run(String imageName) {
         // Load and validate source image
         try {
+            loadStats.start();
             image = new Image(imageName);
+            loadStats.stop(PipelineStats.Stage.DECODE, pixelCount());
         } catch (IOException e) {
             System.err.println("Error: " + e.getMessage());
             return;
@@ -111,7 +182,11 @@ public class Shell {
             case RES -> handleResCommand(arg2);
             case ROUND -> handleRoundCommand(arg2);
             case OUTPUT -> handelOutputCommand(arg2);
+            case COLOR -> handleColorCommand(arg2);
             case ASCIIART -> handleAsciiArtCommand();
+            case STATS -> handleStatsCommand();
+            case MATCH -> handleMatchCommand(arg2);
+            case DITHER -> handleDitherCommand(arg2);
         }
     }
 
@@ -120,26 +195,145 @@ public class Shell {
      * @throws UserInputException if character set is insufficient
      */
     private void handleAsciiArtCommand() throws UserInputException {
-        // Convert character set to array
-        char[] asciiCharset = new char[charMatcher.getBrightnessMap().size()];
-        int i = 0;
-        for (Map.Entry<Character, Double> entry : charMatcher.getBrightnessMap().entrySet()) {
-            asciiCharset[i++] = entry.getKey();
-        }
-
         // Validate minimum character set size
-        if (i < 2) {
+        if (charMatcher.getCharsetSize() < 2) {
             throw new UserInputException(AsciiArtConstant.USER_ERROR_CHARSET);
         }
 
-        // Generate new ASCII art if needed
-        if (lastBrightness == null || lastResolution != resolution) {
-            AsciiArtAlgorithm asciiArt = new AsciiArtAlgorithm(image, asciiCharset, resolution);
-            lastBrightness = asciiArt.run();
-            lastResolution = resolution;
+        // The image is decoded once, when the shell starts
+        PipelineStats stats = new PipelineStats();
+        stats.add(loadStats);
+
+        // Generate new ASCII art only for settings not seen recently
+        GridKey gridKey = new GridKey(resolution, exactWidth);
+        ArtKey key = new ArtKey(gridKey, charMatcher.getCharsetVersion(),
+                charMatcher.getRoundingMethodName(), shapeMatching, dithering);
+        char[][] asciiArt = artCache.get(key);
+        int[][] colors = colorMode ? colorCache.get(gridKey) : null;
+        if (asciiArt == null || (colorMode && colors == null)) {
+            // The brightness grid only depends on the resolution, so charset and
+            // rounding changes just remap a cached grid
+            AsciiArtAlgorithm algorithm =
+                    new AsciiArtAlgorithm(image, charMatcher, resolution, PARALLELISM);
+            double[][] brightness = brightnessCache.get(gridKey);
+            if (colorMode && colors == null) {
+                // A single pass yields both the colors and the brightness
+                stats.start();
+                BlockStatistics statistics = exactWidth ?
+                        algorithm.calculateBrightnessAndColorExactWidth() :
+                        algorithm.calculateBrightnessAndColor();
+                stats.stop(PipelineStats.Stage.BRIGHTNESS, pixelCount());
+                colors = statistics.getColors();
+                colorCache.put(gridKey, colors);
+                if (brightness == null) {
+                    brightness = statistics.getBrightness();
+                    brightnessCache.put(gridKey, brightness);
+                }
+            } else if (brightness == null && !shapeMatching) {
+                // Built once per image, so only the first resolution pays for the table
+                stats.start();
+                image.getLuminanceIntegral();
+                stats.stop(PipelineStats.Stage.PREPARATION, pixelCount());
+                stats.start();
+                brightness = exactWidth ? algorithm.calculateBrightnessExactWidth() :
+                        algorithm.calculateBrightness();
+                stats.stop(PipelineStats.Stage.BRIGHTNESS, pixelCount());
+                brightnessCache.put(gridKey, brightness);
+            }
+            if (asciiArt == null) {
+                asciiArt = shapeMatching ? matchShapes(algorithm, stats) :
+                        mapBrightness(algorithm, brightness, stats);
+                artCache.put(key, asciiArt);
+            }
+        }
+
+        stats.start();
+        if (colors != null && output instanceof ColorAsciiOutput colorOutput) {
+            colorOutput.out(asciiArt, colors);
+        } else {
+            output.out(asciiArt);
+        }
+        stats.stop(PipelineStats.Stage.OUTPUT, cellCount(asciiArt));
+        lastStats = stats;
+    }
+
+    /**
+     * Maps a brightness grid to characters with the current charset and rounding method.
+     * @return The ASCII art
+     */
+    private char[][] mapBrightness(AsciiArtAlgorithm algorithm, double[][] brightness,
+                                   PipelineStats stats) {
+        stats.start();
+        char[][] asciiArt = algorithm.mapToChars(brightness, dithering);
+        stats.stop(PipelineStats.Stage.MAPPING, cellCount(asciiArt));
+        return asciiArt;
+    }
+
+    /**
+     * Matches the shape of every block to the glyphs of the current charset.
+     * Block masks depend on the charset's glyph size only, so they are not cached.
+     * @return The ASCII art
+     */
+    private char[][] matchShapes(AsciiArtAlgorithm algorithm, PipelineStats stats) {
+        stats.start();
+        image.getLuminanceIntegral();
+        stats.stop(PipelineStats.Stage.PREPARATION, pixelCount());
+        stats.start();
+        BlockMasks masks = exactWidth ? algorithm.calculateBlockMasksExactWidth() :
+                algorithm.calculateBlockMasks();
+        stats.stop(PipelineStats.Stage.BRIGHTNESS, pixelCount());
+        stats.start();
+        char[][] asciiArt = algorithm.matchShapes(masks);
+        stats.stop(PipelineStats.Stage.MAPPING, cellCount(asciiArt));
+        return asciiArt;
+    }
+
+    /**
+     * Sets whether blocks are matched to characters by brightness or by shape.
+     * @throws IncorrectFormatException if the mode is neither brightness nor shape
+     */
+    private void handleMatchCommand(String arg2) throws IncorrectFormatException {
+        if (arg2 == null || (!arg2.equals(BRIGHTNESS) && !arg2.equals(SHAPE))) {
+            throw new IncorrectFormatException(AsciiArtConstant.FORMAT_ERROR_MATCH);
         }
+        shapeMatching = arg2.equals(SHAPE);
+    }
 
-        output.out(lastBrightness);
+    /**
+     * Sets the dithering mode used when matching blocks by brightness.
+     * @throws IncorrectFormatException if the mode is unknown
+     */
+    private void handleDitherCommand(String arg2) throws IncorrectFormatException {
+        if (arg2 == null || !BrightnessDitherer.isMode(arg2)) {
+            throw new IncorrectFormatException(AsciiArtConstant.FORMAT_ERROR_DITHER);
+        }
+        dithering = arg2;
+    }
+
+    /**
+     * Displays the time, allocation and throughput of each stage of the last
+     * ASCII art run. Stages skipped because their result was cached show no values.
+     * @throws UserInputException if no ASCII art was generated yet
+     */
+    private void handleStatsCommand() throws UserInputException {
+        if (lastStats == null) {
+            throw new UserInputException(AsciiArtConstant.USER_ERROR_STATS);
+        }
+        System.out.print(lastStats.report());
+    }
+
+    /**
+     * Gets the number of pixels of the source image.
+     */
+    private long pixelCount() {
+        return (long) image.getWidth() * image.getHeight();
+    }
+
+    /**
+     * Gets the number of cells of generated ASCII art.
+     */
+    private static long cellCount(char[][] asciiArt) {
+        return (long) asciiArt.length * asciiArt[0].length;
     }
 
     /**
@@ -152,13 +346,34 @@ public class Shell {
         }
 
         // Set appropriate output handler
-        if (arg2.equals(CONSOLE)) {
-            output = new ConsoleAsciiOutput();
-        } else if (arg2.equals(HTML)) {
-            output = new HtmlAsciiOutput(OUTPUT_HTML, FONT_NAME);
-        } else {
+        if (!arg2.equals(CONSOLE) && !arg2.equals(HTML)) {
             throw new IncorrectFormatException(AsciiArtConstant.FORMAT_ERROR_OUTPUT);
         }
+        outputName = arg2;
+        output = createOutput();
+    }
+
+    /**
+     * Turns color output on or off.
+     * @throws IncorrectFormatException if the mode is neither on nor off
+     */
+    private void handleColorCommand(String arg2) throws IncorrectFormatException {
+        if (arg2 == null || (!arg2.equals(ON) && !arg2.equals(OFF))) {
+            throw new IncorrectFormatException(AsciiArtConstant.FORMAT_ERROR_COLOR);
+        }
+        colorMode = arg2.equals(ON);
+        output = createOutput();
+    }
+
+    /**
+     * Creates the output handler for the current output target and color mode.
+     * @return The output handler
+     */
+    private AsciiOutput createOutput() {
+        if (outputName.equals(HTML)) {
+            return new StreamingHtmlAsciiOutput(OUTPUT_HTML, FONT_NAME);
+        }
+        return colorMode ? new AnsiColorAsciiOutput() : new BufferedConsoleAsciiOutput();
     }
 
     /**
@@ -171,7 +386,7 @@ public class Shell {
         }
 
         // Validate and set rounding method
-        if (arg2.equals(UP) || arg2.equals(DOWN) || arg2.equals("abs")) {
+        if (arg2.equals(UP) || arg2.equals(DOWN) || arg2.equals(ABS)) {
             charMatcher.setRoundingMethod(arg2);
         } else {
             throw new IncorrectFormatException(AsciiArtConstant.FORMAT_ERROR_ROUND);
@@ -179,7 +394,10 @@ public class Shell {
     }
 
     /**
-     * Adjusts the resolution of the ASCII art output.
+     * Adjusts the resolution of the ASCII art output. Doubling and halving keep the
+     * padded grid; a number sets an exact row width, switching to blocks with
+     * fractional bounds over the unpadded image. From an exact width, up and down move
+     * to the next power of two above or below it and return to the padded grid.
      * @throws UserInputException if resolution would exceed image boundaries
      * @throws IncorrectFormatException if resolution command is invalid
      */
@@ -194,22 +412,41 @@ public class Shell {
 
         // Adjust resolution within bounds
         if (arg2.equals(UP)) {
-            if (resolution * 2 > maxCharsInRow) {
+            int up = exactWidth ? Integer.highestOneBit(resolution) * 2 : resolution * 2;
+            if (up > maxCharsInRow) {
                 throw new UserInputException(AsciiArtConstant.FORMAT_ERROR_RESOLUTION_BOUNDARIES);
             }
-            resolution *= 2;
+            resolution = up;
+            exactWidth = false;
             System.out.println(AsciiArtConstant.CHANGE_RESOLUTION + resolution);
         } else if (arg2.equals(DOWN)) {
-            if (resolution / 2 < minCharsInRow) {
+            int down = exactWidth ? Integer.highestOneBit(resolution - 1) : resolution / 2;
+            if (down < minCharsInRow) {
+                throw new UserInputException(AsciiArtConstant.FORMAT_ERROR_RESOLUTION_BOUNDARIES);
+            }
+            resolution = down;
+            exactWidth = false;
+            System.out.println(AsciiArtConstant.CHANGE_RESOLUTION + resolution);
+        } else if (isNumber(arg2)) {
+            int columns = Integer.parseInt(arg2);
+            if (columns < 1 || columns > maxCharsInRow) {
                 throw new UserInputException(AsciiArtConstant.FORMAT_ERROR_RESOLUTION_BOUNDARIES);
             }
-            resolution /= 2;
+            resolution = columns;
+            exactWidth = true;
             System.out.println(AsciiArtConstant.CHANGE_RESOLUTION + resolution);
         } else {
             throw new IncorrectFormatException(AsciiArtConstant.FORMAT_ERROR_RESOLUTION);
         }
     }
 
+    /**
+     * Checks if an argument is a non-negative decimal number small enough for an int.
+     */
+    private static boolean isNumber(String arg) {
+        return arg.matches("\\d{1,9}");
+    }
+
     /**
      * Adds characters to the ASCII art character set.
      * @throws IncorrectFormatException if character specification is invalid
@@ -223,9 +460,7 @@ public class Shell {
         if (arg2.length() == 1 && checkRange(arg2.charAt(0))) {
             charMatcher.addChar(arg2.charAt(0));
         } else if (arg2.equals(ALL)) {
-            for (char c = 32; c <= 125; c++) {
-                charMatcher.addChar(c);
-            }
+            charMatcher.addChars(FIRST_CHAR, LAST_CHAR);
         } else if (arg2.equals(SPACE)) {
             charMatcher.addChar(' ');
         } else if (arg2.length() == LEGAL_RANGE_STRING && arg2.charAt(1) == '-') {
@@ -254,16 +489,14 @@ public class Shell {
             end = temp;
         }
 
-        for (char c = start; c <= end; c++) {
-            charMatcher.addChar(c);
-        }
+        charMatcher.addChars(start, end);
     }
 
     /**
      * Checks if a character is within valid ASCII range (32-125).
      */
     private boolean checkRange(char c) {
-        return c >= 32 && c <= 125;
+        return c >= FIRST_CHAR && c <= LAST_CHAR;
     }
 
     /**
@@ -279,9 +512,7 @@ public class Shell {
         if (arg2.length() == 1 && checkRange(arg2.charAt(0))) {
             charMatcher.removeChar(arg2.charAt(0));
         } else if (arg2.equals(ALL)) {
-            for (char c = 0; c <= 125; c++) {
-                charMatcher.removeChar(c);
-            }
+            charMatcher.removeChars((char) 0, LAST_CHAR);
         } else if (arg2.equals(SPACE)) {
             charMatcher.removeChar(' ');
         } else if (arg2.length() == LEGAL_RANGE_STRING && arg2.charAt(1) == '-') {
@@ -309,9 +540,7 @@ public class Shell {
             end = temp;
         }
 
-        for (char c = start; c <= end; c++) {
-            charMatcher.removeChar(c);
-        }
+        charMatcher.removeChars(start, end);
     }
 
     /**
@@ -345,10 +574,25 @@ public class Shell {
     }
 
     /**
-     * Application entry point.
+     * Application entry point. Runs the interactive shell on a single image, or
+     * converts a whole directory when the first argument is {@value #BATCH}, a frame
+     * sequence when it is {@value #FRAMES}, or serves conversions over HTTP when it
+     * is {@value #SERVE}.
      * @throws IllegalArgumentException if no image filename provided
      */
     public static void main(String[] args) throws IllegalArgumentException {
+        if (args.length > 0 && args[0].equals(BATCH)) {
+            BatchConverter.runFromArgs(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals(FRAMES)) {
+            FrameSequenceConverter.runFromArgs(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals(SERVE)) {
+            AsciiArtServer.runFromArgs(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         if (args.length != 1) {
             return;
         }
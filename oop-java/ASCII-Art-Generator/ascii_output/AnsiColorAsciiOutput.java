@@ -0,0 +1,79 @@
+package ascii_output;
+
+import java.io.PrintStream;
+
+/**
+ * Prints ASCII art to a terminal in 24-bit color using ANSI escape sequences.
+ * A color sequence is only emitted when the color changes from the previous character,
+ * and the frame is printed with a single write.
+ * @author Tomer Kadosh
+ */
+public class AnsiColorAsciiOutput implements ColorAsciiOutput {
+    private static final String SET_COLOR = "\u001b[38;2;";
+    private static final String RESET = "\u001b[0m";
+    /** Marks that no color was emitted yet on the current row */
+    private static final int NO_COLOR = -1;
+
+    /** Stream the art is printed to */
+    private final PrintStream out;
+    /** Frame text, reused between frames */
+    private final StringBuilder frame = new StringBuilder();
+
+    /**
+     * Creates an output printing to standard output.
+     */
+    public AnsiColorAsciiOutput() {
+        this(System.out);
+    }
+
+    /**
+     * Creates an output printing to the given stream.
+     *
+     * @param out Stream to print to
+     */
+    public AnsiColorAsciiOutput(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Prints the art without colors.
+     *
+     * @param chars The ASCII art to print
+     */
+    @Override
+    public void out(char[][] chars) {
+        frame.setLength(0);
+        for (char[] row : chars) {
+            frame.append(row).append('\n');
+        }
+        out.print(frame);
+        out.flush();
+    }
+
+    /**
+     * Prints the art, each character in its color.
+     *
+     * @param chars The ASCII art to print
+     * @param colors Color of each character, packed as 0xRRGGBB
+     */
+    @Override
+    public void out(char[][] chars, int[][] colors) {
+        frame.setLength(0);
+        for (int x = 0; x < chars.length; x++) {
+            int lastColor = NO_COLOR;
+            for (int y = 0; y < chars[x].length; y++) {
+                int color = colors[x][y];
+                if (color != lastColor) {
+                    frame.append(SET_COLOR).append((color >> 16) & 0xFF).append(';')
+                            .append((color >> 8) & 0xFF).append(';')
+                            .append(color & 0xFF).append('m');
+                    lastColor = color;
+                }
+                frame.append(chars[x][y]);
+            }
+            frame.append(RESET).append('\n');
+        }
+        out.print(frame);
+        out.flush();
+    }
+}
@@ -0,0 +1,86 @@
+package ascii_output;
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Prints ASCII art to a stream as a single buffered write per frame.
+ * Rows are encoded into a byte buffer that is reused between frames, so printing
+ * a frame costs one write and one flush instead of one call per character.
+ * @author Tomer Kadosh
+ */
+public class BufferedConsoleAsciiOutput implements AsciiOutput {
+    private static final byte NEW_LINE = '\n';
+    /** Highest character encoded directly as a single byte */
+    private static final char LAST_ASCII = 127;
+
+    /** Stream the art is printed to */
+    private final PrintStream out;
+    /** Encoded frame, grown as needed and reused */
+    private byte[] buffer = new byte[0];
+
+    /**
+     * Creates an output printing to standard output.
+     */
+    public BufferedConsoleAsciiOutput() {
+        this(System.out);
+    }
+
+    /**
+     * Creates an output printing to the given stream.
+     *
+     * @param out Stream to print to
+     */
+    public BufferedConsoleAsciiOutput(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Prints the art, one line per row.
+     *
+     * @param chars The ASCII art to print
+     */
+    @Override
+    public void out(char[][] chars) {
+        int length = 0;
+        for (char[] row : chars) {
+            length = encodeRow(row, length);
+        }
+        out.write(buffer, 0, length);
+        out.flush();
+    }
+
+    /**
+     * Appends a row and a line break to the frame buffer.
+     *
+     * @param row The row to append
+     * @param length Number of bytes already in the buffer
+     * @return The new number of bytes in the buffer
+     */
+    private int encodeRow(char[] row, int length) {
+        ensureCapacity(length + row.length + 1);
+        for (char c : row) {
+            if (c > LAST_ASCII) {
+                // Rare non-ASCII character, fall back to a full encoding of the row
+                byte[] encoded = new String(row).getBytes(StandardCharsets.UTF_8);
+                ensureCapacity(length + encoded.length + 1);
+                System.arraycopy(encoded, 0, buffer, length, encoded.length);
+                buffer[length + encoded.length] = NEW_LINE;
+                return length + encoded.length + 1;
+            }
+        }
+        for (char c : row) {
+            buffer[length++] = (byte) c;
+        }
+        buffer[length++] = NEW_LINE;
+        return length;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (buffer.length < capacity) {
+            byte[] grown = new byte[Math.max(capacity, buffer.length * 2)];
+            System.arraycopy(buffer, 0, grown, 0, buffer.length);
+            buffer = grown;
+        }
+    }
+}
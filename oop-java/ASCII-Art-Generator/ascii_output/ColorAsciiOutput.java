@@ -0,0 +1,15 @@
+package ascii_output;
+
+/**
+ * An output that can also render each character in a color.
+ * @author Tomer Kadosh
+ */
+public interface ColorAsciiOutput extends AsciiOutput {
+    /**
+     * Outputs ASCII art with a color per character.
+     *
+     * @param chars The ASCII art
+     * @param colors Color of each character, packed as 0xRRGGBB, same shape as chars
+     */
+    void out(char[][] chars, int[][] colors);
+}
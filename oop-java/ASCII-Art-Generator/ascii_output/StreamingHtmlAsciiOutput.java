@@ -0,0 +1,137 @@
+package ascii_output;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Writes ASCII art to an HTML file, streaming it row by row.
+ * Each row is escaped into a reusable buffer and written through a buffered file
+ * writer, so the page is never assembled as one string in memory. Colored art wraps
+ * each run of equally colored characters in a single span.
+ * @author Tomer Kadosh
+ */
+public class StreamingHtmlAsciiOutput implements ColorAsciiOutput {
+    /** Characters buffered per file write */
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    private static final String HEADER_START =
+            "<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n" +
+            "<style>pre { font-family: '";
+    private static final String HEADER_END =
+            "', monospace; font-size: 8px; line-height: 1; letter-spacing: 0.2em; }</style>\n" +
+            "</head>\n<body>\n<pre>\n";
+    private static final String FOOTER = "</pre>\n</body>\n</html>\n";
+    private static final String SPAN_START = "<span style=\"color:";
+    private static final String SPAN_END = "</span>";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    /** Hex digits of a packed 0xRRGGBB color */
+    private static final int COLOR_DIGITS = 6;
+    private static final int BITS_PER_DIGIT = 4;
+    private static final int DIGIT_MASK = 0xF;
+
+    private final String filename;
+    private final String fontName;
+    /** Escaped row, reused between rows */
+    private final StringBuilder rowBuffer = new StringBuilder();
+    /** Characters of the escaped row, copied out of the buffer so no string is created */
+    private char[] rowChars = new char[0];
+
+    /**
+     * Creates an output writing to the given file.
+     *
+     * @param filename Path of the HTML file to write
+     * @param fontName Font the page displays the art in
+     */
+    public StreamingHtmlAsciiOutput(String filename, String fontName) {
+        this.filename = filename;
+        this.fontName = fontName;
+    }
+
+    /**
+     * Writes the art to the file, replacing its previous contents.
+     *
+     * @param chars The ASCII art to write
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    @Override
+    public void out(char[][] chars) {
+        out(chars, null);
+    }
+
+    /**
+     * Writes the art to the file with a color per character, replacing its
+     * previous contents.
+     *
+     * @param chars The ASCII art to write
+     * @param colors Color of each character, packed as 0xRRGGBB, or null for no colors
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    @Override
+    public void out(char[][] chars, int[][] colors) {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(Paths.get(filename)), StandardCharsets.UTF_8),
+                WRITE_BUFFER_SIZE)) {
+            writer.write(HEADER_START);
+            writer.write(fontName);
+            writer.write(HEADER_END);
+            for (int x = 0; x < chars.length; x++) {
+                writeRow(writer, chars[x], colors == null ? null : colors[x]);
+            }
+            writer.write(FOOTER);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Escapes a row for HTML and writes it followed by a line break.
+     */
+    private void writeRow(Writer writer, char[] row, int[] colors) throws IOException {
+        rowBuffer.setLength(0);
+        for (int y = 0; y < row.length; y++) {
+            if (colors != null && (y == 0 || colors[y] != colors[y - 1])) {
+                if (y > 0) {
+                    rowBuffer.append(SPAN_END);
+                }
+                rowBuffer.append(SPAN_START);
+                appendColor(colors[y]);
+                rowBuffer.append("\">");
+            }
+            char c = row[y];
+            switch (c) {
+                case '<' -> rowBuffer.append("&lt;");
+                case '>' -> rowBuffer.append("&gt;");
+                case '&' -> rowBuffer.append("&amp;");
+                default -> rowBuffer.append(c);
+            }
+        }
+        if (colors != null && row.length > 0) {
+            rowBuffer.append(SPAN_END);
+        }
+        rowBuffer.append('\n');
+        int length = rowBuffer.length();
+        if (rowChars.length < length) {
+            rowChars = new char[length];
+        }
+        rowBuffer.getChars(0, length, rowChars, 0);
+        writer.write(rowChars, 0, length);
+    }
+
+    /**
+     * Appends a color as {@code #rrggbb} digit by digit, without formatting it
+     * through a {@link java.util.Formatter} for every run.
+     *
+     * @param rgb Color packed as 0xRRGGBB
+     */
+    private void appendColor(int rgb) {
+        rowBuffer.append('#');
+        for (int shift = (COLOR_DIGITS - 1) * BITS_PER_DIGIT; shift >= 0; shift -= BITS_PER_DIGIT) {
+            rowBuffer.append(HEX_DIGITS[(rgb >> shift) & DIGIT_MASK]);
+        }
+    }
+}
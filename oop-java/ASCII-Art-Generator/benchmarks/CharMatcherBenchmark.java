@@ -0,0 +1,92 @@
+package benchmarks;
+
+import image_char_matching.SubImgCharMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks building a character matcher and changing its charset.
+ * @author Tomer Kadosh
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CharMatcherBenchmark {
+    /** The shell's default charset */
+    static final char[] DEFAULT_CHARSET = "0123456789".toCharArray();
+    private static final char FIRST_CHAR = 32;
+    private static final char LAST_CHAR = 125;
+    /** Character added and removed again by {@link #addAndRemoveChar()} */
+    private static final char ADDED_CHAR = '@';
+
+    /** Charset the matcher is built with */
+    @Param({"digits", "all"})
+    public String charset;
+
+    private char[] chars;
+    private SubImgCharMatcher matcher;
+
+    @Setup
+    public void setUp() {
+        chars = charset(charset);
+        matcher = new SubImgCharMatcher(chars);
+        matcher.removeChar(ADDED_CHAR);
+    }
+
+    @Benchmark
+    public SubImgCharMatcher construction() {
+        return new SubImgCharMatcher(chars);
+    }
+
+    /**
+     * Adds a character and removes it again, leaving the charset as it was. Undoing the
+     * edit in the benchmark itself avoids a per-invocation setup, whose overhead would
+     * dominate an edit this short.
+     */
+    @Benchmark
+    public SubImgCharMatcher addAndRemoveChar() {
+        matcher.addChar(ADDED_CHAR);
+        matcher.removeChar(ADDED_CHAR);
+        return matcher;
+    }
+
+    /** The shell's "add all" followed by "remove all", each one bulk edit */
+    @Benchmark
+    public SubImgCharMatcher addAndRemoveAll() {
+        SubImgCharMatcher edited = new SubImgCharMatcher(chars);
+        edited.addChars(FIRST_CHAR, LAST_CHAR);
+        edited.removeChars((char) 0, LAST_CHAR);
+        return edited;
+    }
+
+    /**
+     * Returns the characters of a charset parameter.
+     *
+     * @param name "digits" for the default charset, "all" for the printable range
+     * @return The characters
+     */
+    static char[] charset(String name) {
+        if (!name.equals("all")) {
+            return DEFAULT_CHARSET.clone();
+        }
+        char[] all = new char[LAST_CHAR - FIRST_CHAR + 1];
+        for (char c = FIRST_CHAR; c <= LAST_CHAR; c++) {
+            all[c - FIRST_CHAR] = c;
+        }
+        return all;
+    }
+}
@@ -0,0 +1,105 @@
+package benchmarks;
+
+import ascii_art.AsciiArtAlgorithm;
+import image.Image;
+import image.ImagePrepration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the image stages of the pipeline: decoding and the brightness
+ * pass, across image sizes and output resolutions.
+ * @author Tomer Kadosh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ImageBenchmark {
+    /** Image sizes, both power-of-two and padded widths */
+    @Param({"640x480", "1024x1024", "1920x1080", "4096x3072"})
+    public String size;
+
+    /** Output characters per row */
+    @Param({"64", "256"})
+    public int resolution;
+
+    private Image image;
+    private File png;
+    private File jpeg;
+
+    @Setup
+    public void setUp() throws IOException {
+        int[] dimensions = SyntheticImages.parseSize(size);
+        image = SyntheticImages.image(dimensions[0], dimensions[1]);
+        png = SyntheticImages.writeTemporary(dimensions[0], dimensions[1], "png");
+        jpeg = SyntheticImages.writeTemporary(dimensions[0], dimensions[1], "jpeg");
+        // Build the integral table once, as a session does for the loaded image
+        image.getLuminanceIntegral();
+    }
+
+    @Benchmark
+    public Image decodePng() throws IOException {
+        return new Image(png.getPath());
+    }
+
+    @Benchmark
+    public Image decodeJpeg() throws IOException {
+        return new Image(jpeg.getPath());
+    }
+
+    @Benchmark
+    public Image decodeSubsampled() throws IOException {
+        return Image.readSubsampled(jpeg.getPath(), resolution);
+    }
+
+    /**
+     * Computes the brightness of every block by reading each of its pixels; padding is
+     * virtual, so this is the per-pixel baseline for {@link #brightnessIntegral()}.
+     */
+    @Benchmark
+    public double[][] brightnessDirect() {
+        return new ImagePrepration(image, resolution).calculateBrightnessForALL(image, resolution);
+    }
+
+    @Benchmark
+    public double[][] brightnessIntegral() {
+        return new ImagePrepration(image, resolution).calculateBrightnessWithIntegral();
+    }
+
+    @Benchmark
+    public double[][] brightnessParallel() {
+        ImagePrepration preparation = new ImagePrepration(image, resolution);
+        preparation.setParallelism(Runtime.getRuntime().availableProcessors());
+        return preparation.calculateBrightnessForALL(image, resolution);
+    }
+
+    /**
+     * Builds the integral table from scratch, the cost of the first conversion of an image.
+     */
+    @Benchmark
+    public double[][] brightnessIntegralCold() {
+        Image copy = new Image(image.getPixels(), image.getWidth(), image.getHeight());
+        return new ImagePrepration(copy, resolution).calculateBrightnessWithIntegral();
+    }
+
+    @Benchmark
+    public char[][] fullConversion() {
+        return new AsciiArtAlgorithm(image, CharMatcherBenchmark.DEFAULT_CHARSET, resolution).run();
+    }
+}
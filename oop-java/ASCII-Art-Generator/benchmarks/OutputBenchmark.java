@@ -0,0 +1,93 @@
+package benchmarks;
+
+import ascii_output.AnsiColorAsciiOutput;
+import ascii_output.BufferedConsoleAsciiOutput;
+import ascii_output.ColorAsciiOutput;
+import ascii_output.StreamingHtmlAsciiOutput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the output writers on frames of several sizes.
+ * Console output goes to a discarding stream, so only formatting and buffering
+ * are measured; HTML output is written to a temporary file.
+ * @author Tomer Kadosh
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OutputBenchmark {
+    private static final long SEED = 11;
+    private static final String FONT_NAME = "Courier New";
+    /** Characters the frame is drawn from, including ones HTML must escape */
+    private static final char[] CHARSET = " .:-=+*#%@<>&0123456789".toCharArray();
+
+    /** Characters per row; frames keep a 4:3 aspect ratio */
+    @Param({"64", "256", "1024"})
+    public int resolution;
+
+    private char[][] chars;
+    private int[][] colors;
+    private BufferedConsoleAsciiOutput console;
+    private ColorAsciiOutput ansi;
+    private StreamingHtmlAsciiOutput html;
+
+    @Setup
+    public void setUp() throws IOException {
+        int rows = resolution * 3 / 4;
+        Random random = new Random(SEED);
+        chars = new char[rows][resolution];
+        colors = new int[rows][resolution];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < resolution; col++) {
+                chars[row][col] = CHARSET[random.nextInt(CHARSET.length)];
+                colors[row][col] = random.nextInt(1 << 24);
+            }
+        }
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        console = new BufferedConsoleAsciiOutput(discard);
+        ansi = new AnsiColorAsciiOutput(discard);
+        File file = File.createTempFile("benchmark", ".html");
+        file.deleteOnExit();
+        html = new StreamingHtmlAsciiOutput(file.getPath(), FONT_NAME);
+    }
+
+    @Benchmark
+    public void console() {
+        console.out(chars);
+    }
+
+    @Benchmark
+    public void consoleColor() {
+        ansi.out(chars, colors);
+    }
+
+    @Benchmark
+    public void html() {
+        html.out(chars);
+    }
+
+    @Benchmark
+    public void htmlColor() {
+        html.out(chars, colors);
+    }
+}
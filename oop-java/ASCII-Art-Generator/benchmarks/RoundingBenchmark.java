@@ -0,0 +1,111 @@
+package benchmarks;
+
+import image_char_matching.AbsRound;
+import image_char_matching.BrightnessLookupTable;
+import image_char_matching.DownRound;
+import image_char_matching.RoundingMethod;
+import image_char_matching.SortedCharBrightness;
+import image_char_matching.SubImgCharMatcher;
+import image_char_matching.UpRound;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks mapping block brightness to characters with each rounding method,
+ * through the dense brightness array, the sorted snapshot and the lookup table.
+ * Each invocation maps one frame's worth of brightness values.
+ * @author Tomer Kadosh
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RoundingBenchmark {
+    private static final long SEED = 7;
+
+    @Param({SubImgCharMatcher.ABS, SubImgCharMatcher.UP, SubImgCharMatcher.DOWN})
+    public String roundingMethod;
+
+    @Param({"digits", "all"})
+    public String charset;
+
+    /** Number of blocks in the mapped frame */
+    @Param({"4096", "65536"})
+    public int blocks;
+
+    private RoundingMethod method;
+    private double[] brightness;
+    private BitSet chars;
+    private SortedCharBrightness sorted;
+    private BrightnessLookupTable lookupTable;
+    private double[] values;
+
+    @Setup
+    public void setUp() {
+        SubImgCharMatcher matcher = new SubImgCharMatcher(CharMatcherBenchmark.charset(charset));
+        matcher.setRoundingMethod(roundingMethod);
+        method = roundingMethod(roundingMethod);
+        brightness = new double[SubImgCharMatcher.CHAR_LIMIT];
+        chars = new BitSet(SubImgCharMatcher.CHAR_LIMIT);
+        for (Map.Entry<Character, Double> entry : matcher.getBrightnessMap().entrySet()) {
+            brightness[entry.getKey()] = entry.getValue();
+            chars.set(entry.getKey());
+        }
+        sorted = new SortedCharBrightness(brightness, chars);
+        lookupTable = matcher.getLookupTable();
+        Random random = new Random(SEED);
+        values = new double[blocks];
+        for (int i = 0; i < blocks; i++) {
+            values[i] = random.nextDouble();
+        }
+    }
+
+    @Benchmark
+    public void roundArray(Blackhole blackhole) {
+        for (double value : values) {
+            blackhole.consume(method.round(value, brightness, chars));
+        }
+    }
+
+    @Benchmark
+    public void roundSorted(Blackhole blackhole) {
+        for (double value : values) {
+            blackhole.consume(method.round(value, sorted));
+        }
+    }
+
+    @Benchmark
+    public void lookupTable(Blackhole blackhole) {
+        for (double value : values) {
+            blackhole.consume(lookupTable.charFor(value));
+        }
+    }
+
+    private static RoundingMethod roundingMethod(String name) {
+        switch (name) {
+            case SubImgCharMatcher.UP:
+                return new UpRound();
+            case SubImgCharMatcher.DOWN:
+                return new DownRound();
+            default:
+                return new AbsRound();
+        }
+    }
+}
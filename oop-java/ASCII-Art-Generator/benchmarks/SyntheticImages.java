@@ -0,0 +1,95 @@
+package benchmarks;
+
+import image.Image;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Generates deterministic test images for the benchmarks, so runs are comparable
+ * across machines without shipping image files.
+ * The content is a diagonal gradient with seeded noise, which compresses and
+ * converts roughly like a photograph.
+ * @author Tomer Kadosh
+ */
+final class SyntheticImages {
+    /** Seed of the noise, fixed so every run sees the same pixels */
+    private static final long SEED = 42;
+    /** Maximum noise added to each channel */
+    private static final int NOISE = 48;
+    private static final int CHANNEL_MAX = 255;
+
+    private SyntheticImages() {
+    }
+
+    /**
+     * Generates the packed ARGB pixels of a synthetic image.
+     *
+     * @param width Image width in pixels
+     * @param height Image height in pixels
+     * @return The pixels in row-major order
+     */
+    static int[] pixels(int width, int height) {
+        Random random = new Random(SEED);
+        int[] pixels = new int[width * height];
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                int base = (row + col) * CHANNEL_MAX / (width + height);
+                int r = clamp(base + random.nextInt(NOISE));
+                int g = clamp(CHANNEL_MAX - base + random.nextInt(NOISE));
+                int b = clamp(col * CHANNEL_MAX / width + random.nextInt(NOISE));
+                pixels[row * width + col] = 0xFF000000 | r << 16 | g << 8 | b;
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * Generates a synthetic image in memory.
+     *
+     * @param width Image width in pixels
+     * @param height Image height in pixels
+     * @return The image
+     */
+    static Image image(int width, int height) {
+        return new Image(pixels(width, height), width, height);
+    }
+
+    /**
+     * Writes a synthetic image to a temporary file, deleted when the JVM exits.
+     *
+     * @param width Image width in pixels
+     * @param height Image height in pixels
+     * @param format ImageIO format name, such as "png" or "jpeg"
+     * @return The written file
+     * @throws IOException if the file cannot be written
+     */
+    static File writeTemporary(int width, int height, String format) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, width, height, pixels(width, height), 0, width);
+        File file = File.createTempFile("synthetic_" + width + "x" + height, "." + format);
+        file.deleteOnExit();
+        if (!ImageIO.write(image, format, file)) {
+            throw new IOException("No writer for format " + format);
+        }
+        return file;
+    }
+
+    /**
+     * Parses an image size parameter of the form "WIDTHxHEIGHT".
+     *
+     * @param size The size parameter
+     * @return Width and height
+     */
+    static int[] parseSize(String size) {
+        String[] parts = size.split("x");
+        return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+    }
+
+    private static int clamp(int channel) {
+        return Math.min(channel, CHANNEL_MAX);
+    }
+}
@@ -0,0 +1,197 @@
+package image;
+
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Reads the frames of an animated GIF as full images.
+ * GIF frames usually only cover the part of the screen that changed, so each frame is
+ * composited onto a canvas according to its disposal method, and the canvas region
+ * that may have changed is reported alongside it.
+ * @author Tomer Kadosh
+ * @see IncrementalBrightness
+ */
+public class AnimatedGifReader implements Closeable {
+    private static final String IMAGE_FORMAT = "javax_imageio_gif_image_1.0";
+    private static final String STREAM_FORMAT = "javax_imageio_gif_stream_1.0";
+    private static final String RESTORE_TO_BACKGROUND = "restoreToBackgroundColor";
+    private static final String RESTORE_TO_PREVIOUS = "restoreToPrevious";
+    /** Color the canvas starts with and disposed regions are restored to */
+    private static final int BACKGROUND = Color.WHITE.getRGB();
+    /** Alpha bits of a packed ARGB pixel */
+    private static final int ALPHA_MASK = 0xFF000000;
+
+    private final ImageInputStream input;
+    private final ImageReader reader;
+    private final int frameCount;
+    private final int width;
+    private final int height;
+    /** Composited frame, updated in place */
+    private final int[] canvas;
+
+    private int nextFrame = 0;
+    /** Region to dispose of before drawing the next frame, or null */
+    private Rectangle pendingDisposal;
+    /** Canvas pixels to restore for a restoreToPrevious disposal */
+    private int[] savedPixels;
+    /** Region of the canvas the last frame may have changed */
+    private Rectangle changedRegion;
+
+    /**
+     * Opens an animated GIF.
+     *
+     * @param filename Path of the GIF file
+     * @throws IOException if the file cannot be read or is not a GIF
+     */
+    public AnimatedGifReader(String filename) throws IOException {
+        this.input = ImageIO.createImageInputStream(new File(filename));
+        this.reader = ImageReaders.open(input, filename);
+        try {
+            this.frameCount = reader.getNumImages(true);
+            Node screen = findChild(reader.getStreamMetadata().getAsTree(STREAM_FORMAT),
+                    "LogicalScreenDescriptor");
+            int screenWidth = intAttribute(screen, "logicalScreenWidth", 0);
+            int screenHeight = intAttribute(screen, "logicalScreenHeight", 0);
+            this.width = screenWidth > 0 ? screenWidth : reader.getWidth(0);
+            this.height = screenHeight > 0 ? screenHeight : reader.getHeight(0);
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e instanceof IOException ? (IOException) e :
+                    new IOException("Not an animated GIF: " + filename, e);
+        }
+        this.canvas = new int[width * height];
+        Arrays.fill(canvas, BACKGROUND);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return Whether another frame can be read
+     */
+    public boolean hasNextFrame() {
+        return nextFrame < frameCount;
+    }
+
+    /**
+     * Composites the next frame onto the canvas.
+     * The returned image shares the canvas, so it is only valid until the next call.
+     *
+     * @return The full frame
+     * @throws IOException if the frame cannot be decoded
+     */
+    public Image nextFrame() throws IOException {
+        IIOMetadata metadata = reader.getImageMetadata(nextFrame);
+        Node root = metadata.getAsTree(IMAGE_FORMAT);
+        Node descriptor = findChild(root, "ImageDescriptor");
+        Node control = findChild(root, "GraphicControlExtension");
+        BufferedImage frame = reader.read(nextFrame++);
+        Rectangle frameRegion = new Rectangle(intAttribute(descriptor, "imageLeftPosition", 0),
+                intAttribute(descriptor, "imageTopPosition", 0), frame.getWidth(),
+                frame.getHeight()).intersection(new Rectangle(width, height));
+
+        // Undo the previous frame as its disposal method asks
+        changedRegion = frameRegion;
+        if (pendingDisposal != null) {
+            if (savedPixels != null) {
+                copyRegion(savedPixels, canvas, pendingDisposal);
+            } else {
+                fillRegion(pendingDisposal);
+            }
+            changedRegion = changedRegion.union(pendingDisposal);
+        }
+
+        String disposal = control == null ? "none" : attribute(control, "disposalMethod");
+        pendingDisposal = null;
+        savedPixels = null;
+        if (RESTORE_TO_PREVIOUS.equals(disposal) && !frameRegion.isEmpty()) {
+            savedPixels = canvas.clone();
+            pendingDisposal = frameRegion;
+        } else if (RESTORE_TO_BACKGROUND.equals(disposal) && !frameRegion.isEmpty()) {
+            pendingDisposal = frameRegion;
+        }
+
+        drawFrame(frame, frameRegion);
+        return new Image(canvas, width, height);
+    }
+
+    /**
+     * @return The canvas region the last frame may have changed
+     */
+    public Rectangle getChangedRegion() {
+        return changedRegion;
+    }
+
+    /**
+     * Draws the opaque pixels of a frame onto the canvas.
+     */
+    private void drawFrame(BufferedImage frame, Rectangle region) {
+        int[] row = new int[region.width];
+        for (int y = 0; y < region.height; y++) {
+            frame.getRGB(0, y, region.width, 1, row, 0, region.width);
+            int offset = (region.y + y) * width + region.x;
+            for (int x = 0; x < region.width; x++) {
+                if ((row[x] & ALPHA_MASK) != 0) {
+                    canvas[offset + x] = row[x];
+                }
+            }
+        }
+    }
+
+    private void fillRegion(Rectangle region) {
+        for (int y = region.y; y < region.y + region.height; y++) {
+            int offset = y * width + region.x;
+            Arrays.fill(canvas, offset, offset + region.width, BACKGROUND);
+        }
+    }
+
+    private void copyRegion(int[] source, int[] target, Rectangle region) {
+        for (int y = region.y; y < region.y + region.height; y++) {
+            int offset = y * width + region.x;
+            System.arraycopy(source, offset, target, offset, region.width);
+        }
+    }
+
+    private static Node findChild(Node parent, String name) {
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeName().equals(name)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    private static String attribute(Node node, String name) {
+        NamedNodeMap attributes = node.getAttributes();
+        Node attribute = attributes == null ? null : attributes.getNamedItem(name);
+        return attribute == null ? null : attribute.getNodeValue();
+    }
+
+    private static int intAttribute(Node node, String name, int defaultValue) {
+        String value = node == null ? null : attribute(node, name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.dispose();
+        input.close();
+    }
+}
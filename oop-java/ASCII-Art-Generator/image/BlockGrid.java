@@ -0,0 +1,138 @@
+package image;
+
+/**
+ * Geometry of the block grid laid over a virtually padded image.
+ * The image is centered in an area padded to power-of-two dimensions, and the
+ * area is divided into square blocks, {@code resolution} per row. Padded pixels
+ * are never stored; they count as white when a block's brightness is computed.
+ * @author Tomer Kadosh
+ * @see ImagePrepration
+ */
+final class BlockGrid {
+    /** Fewest samples per block side kept when decoding a subsampled image */
+    static final int MIN_BLOCK_SAMPLES = 8;
+
+    private final int width;
+    private final int height;
+    private final int blockSize;
+    private final int rows;
+    private final int cols;
+    /** Column of the image's left edge inside the padded area */
+    private final int left;
+    /** Row of the image's top edge inside the padded area */
+    private final int top;
+
+    /**
+     * Lays a block grid over an image of the given size.
+     *
+     * @param width Width of the unpadded image
+     * @param height Height of the unpadded image
+     * @param resolution Number of blocks per row
+     * @throws IllegalArgumentException if the resolution exceeds or does not divide the padded
+     * width, or the padded height is not divisible by the block size
+     */
+    BlockGrid(int width, int height, int resolution) {
+        int newWidth = ImagePrepration.paddedWidth(width);
+        int newHight = ImagePrepration.paddedHeight(height);
+        if (resolution < 1 || resolution > newWidth) {
+            throw new IllegalArgumentException("Resolution exceeds image width");
+        }
+        if (newWidth % resolution != 0) {
+            // Whole blocks would not cover the padded width, cropping the image's right side
+            throw new IllegalArgumentException("Resolution must divide the padded width " +
+                    newWidth);
+        }
+        this.blockSize = newWidth / resolution;
+        if (newHight % blockSize != 0) {
+            throw new IllegalArgumentException("Image dimensions must be divisible by block size");
+        }
+        this.width = width;
+        this.height = height;
+        this.rows = newHight / blockSize;
+        this.cols = resolution;
+        this.left = (newWidth - width) / 2;
+        this.top = (newHight - height) / 2;
+    }
+
+    int getBlockSize() {
+        return blockSize;
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    int getCols() {
+        return cols;
+    }
+
+    /**
+     * Chooses how many pixels can be skipped in each direction while decoding, so that
+     * every block still gets at least {@link #MIN_BLOCK_SAMPLES} samples per side.
+     * The factor is a power of two dividing the block size, so an image decoded with
+     * it pads to exactly the same grid of blocks.
+     *
+     * @return The subsampling factor, 1 to decode every pixel
+     */
+    int subsamplingFactor() {
+        int factor = 1;
+        while (blockSize % (factor * 2) == 0 && blockSize / (factor * 2) >= MIN_BLOCK_SAMPLES) {
+            factor *= 2;
+        }
+        return factor;
+    }
+
+    /**
+     * @param blockRow A block row
+     * @return The image row where the block starts, negative inside the top padding
+     */
+    int rowStart(int blockRow) {
+        return blockRow * blockSize - top;
+    }
+
+    /**
+     * @param blockCol A block column
+     * @return The image column where the block starts, negative inside the left padding
+     */
+    int colStart(int blockCol) {
+        return blockCol * blockSize - left;
+    }
+
+    /**
+     * @param imageRow A row of the unpadded image
+     * @return The block row containing it
+     */
+    int blockRowOf(int imageRow) {
+        return (imageRow + top) / blockSize;
+    }
+
+    /**
+     * Calculates how many pixels of a block lie inside the image.
+     *
+     * @param blockRow The block row
+     * @param blockCol The block column
+     * @return Number of image pixels the block covers
+     */
+    long coveredArea(int blockRow, int blockCol) {
+        int rowStart = rowStart(blockRow);
+        int colStart = colStart(blockCol);
+        int coveredRows = Math.min(rowStart + blockSize, height) - Math.max(rowStart, 0);
+        int coveredCols = Math.min(colStart + blockSize, width) - Math.max(colStart, 0);
+        return coveredRows > 0 && coveredCols > 0 ? (long) coveredRows * coveredCols : 0;
+    }
+
+    /**
+     * Converts the luminance sum of a block's image pixels to the block's brightness,
+     * counting its padded pixels as white.
+     *
+     * @param imageSum Luminance sum of the image pixels inside the block
+     * @param blockRow The block row
+     * @param blockCol The block column
+     * @return Normalized brightness of the whole block
+     */
+    double brightness(long imageSum, int blockRow, int blockCol) {
+        long blockArea = (long) blockSize * blockSize;
+        long padding = blockArea - coveredArea(blockRow, blockCol);
+        return Luminance.toBrightness(imageSum + padding * Luminance.MAX_LUMINANCE, blockArea);
+    }
+}
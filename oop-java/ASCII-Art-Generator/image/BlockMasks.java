@@ -0,0 +1,82 @@
+package image;
+
+/**
+ * Thresholded shape of every block of an image, for matching blocks against glyph
+ * bitmaps. Each block is divided into {@code maskSize x maskSize} cells; a cell's bit
+ * is set when the cell is at least as bright as the image on average. The bits of a
+ * block are packed row-major into consecutive longs, bit {@code i} of the block in
+ * bit {@code i % 64} of word {@code i / 64}.
+ * @author Tomer Kadosh
+ * @see ImagePrepration#calculateBlockMasks(int)
+ */
+public final class BlockMasks {
+    private final int rows;
+    private final int cols;
+    private final int maskSize;
+    private final int wordsPerBlock;
+    /** Words of all blocks, row-major by block */
+    private final long[] words;
+
+    /**
+     * Creates empty masks for a grid of blocks.
+     *
+     * @param rows Number of block rows
+     * @param cols Number of block columns
+     * @param maskSize Cells per block side
+     * @throws IllegalArgumentException if the cells of a block do not fill whole longs
+     */
+    BlockMasks(int rows, int cols, int maskSize) {
+        if (maskSize < 1 || maskSize * maskSize % Long.SIZE != 0) {
+            throw new IllegalArgumentException("Mask cells must fill whole longs");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.maskSize = maskSize;
+        this.wordsPerBlock = maskSize * maskSize / Long.SIZE;
+        this.words = new long[rows * cols * wordsPerBlock];
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getMaskSize() {
+        return maskSize;
+    }
+
+    public int getWordsPerBlock() {
+        return wordsPerBlock;
+    }
+
+    /**
+     * Returns the packed masks of all blocks. The array is shared, not copied.
+     *
+     * @return The words, {@link #getWordsPerBlock()} per block
+     */
+    public long[] getWords() {
+        return words;
+    }
+
+    /**
+     * @param row A block row
+     * @param col A block column
+     * @return Index of the block's first word in {@link #getWords()}
+     */
+    public int offset(int row, int col) {
+        return (row * cols + col) * wordsPerBlock;
+    }
+
+    /**
+     * Sets the bit of a cell.
+     *
+     * @param offset Offset of the block from {@link #offset(int, int)}
+     * @param cell Index of the cell, row-major within the block
+     */
+    void set(int offset, int cell) {
+        words[offset + (cell >>> 6)] |= 1L << (cell & (Long.SIZE - 1));
+    }
+}
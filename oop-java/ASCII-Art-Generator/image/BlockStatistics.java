@@ -0,0 +1,32 @@
+package image;
+
+/**
+ * Per-block results of a combined brightness and color pass over an image.
+ * @author Tomer Kadosh
+ * @see ImagePrepration#calculateBrightnessAndColorForALL()
+ */
+public class BlockStatistics {
+    /** Normalized brightness of each block */
+    private final double[][] brightness;
+    /** Average color of each block, packed as 0xRRGGBB */
+    private final int[][] colors;
+
+    /**
+     * Creates block statistics from matching grids.
+     *
+     * @param brightness Normalized brightness of each block
+     * @param colors Average color of each block, packed as 0xRRGGBB
+     */
+    public BlockStatistics(double[][] brightness, int[][] colors) {
+        this.brightness = brightness;
+        this.colors = colors;
+    }
+
+    public double[][] getBrightness() {
+        return brightness;
+    }
+
+    public int[][] getColors() {
+        return colors;
+    }
+}
@@ -0,0 +1,66 @@
+package image;
+
+/**
+ * Geometry of a block grid with fractional boundaries laid over an unpadded image,
+ * for output widths that do not divide the image width.
+ * The image is divided into exactly {@code columns} blocks per row and as many rows
+ * as keep the blocks closest to square. Block edges fall between pixels, so a pixel
+ * on an edge contributes to each block in proportion to the area it covers.
+ * @author Tomer Kadosh
+ * @see ImagePrepration#calculateBrightnessAreaWeighted()
+ */
+final class FractionalGrid {
+    private final int width;
+    private final int height;
+    private final int rows;
+    private final int cols;
+
+    /**
+     * Lays a fractional block grid over an image of the given size.
+     *
+     * @param width Width of the image
+     * @param height Height of the image
+     * @param columns Number of blocks per row
+     * @throws IllegalArgumentException if the columns are not between 1 and the image width
+     */
+    FractionalGrid(int width, int height, int columns) {
+        if (columns < 1 || columns > width) {
+            throw new IllegalArgumentException("Resolution exceeds image width");
+        }
+        this.width = width;
+        this.height = height;
+        this.cols = columns;
+        this.rows = Math.max(1, (int) Math.round((double) height * columns / width));
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    int getCols() {
+        return cols;
+    }
+
+    /**
+     * @param blockRow A block row, or the row count for the bottom edge of the last row
+     * @return The image row where the block starts, possibly fractional
+     */
+    double top(int blockRow) {
+        return (double) blockRow * height / rows;
+    }
+
+    /**
+     * @param blockCol A block column, or the column count for the right edge of the last column
+     * @return The image column where the block starts, possibly fractional
+     */
+    double left(int blockCol) {
+        return (double) blockCol * width / cols;
+    }
+
+    /**
+     * @return The area of every block in pixels, possibly fractional
+     */
+    double blockArea() {
+        return (double) width * height / ((double) rows * cols);
+    }
+}
@@ -1,41 +1,130 @@
 package image;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * A package-private class of the package image.
+ * Pixels are stored packed, one ARGB int per pixel in row-major order, instead of
+ * one {@link Color} object per pixel.
  * @author Dan Nirel
  */
 public class Image {
 
-    private final Color[][] pixelArray;
+    private final int[] pixels;
     private final int width;
     private final int height;
+    /** Lazily built luminance summed-area table, shared by all resolutions */
+    private LuminanceIntegral luminanceIntegral;
 
     public Image(String filename) throws IOException {
-        BufferedImage im = ImageIO.read(new File(filename));
+        this(ImageIO.read(new File(filename)), filename);
+    }
+
+    /**
+     * Decodes an image from a stream, such as an uploaded file held in memory.
+     *
+     * @param input Stream holding an encoded image, not closed by this constructor
+     * @throws IOException if the stream cannot be read or its format is not supported
+     */
+    public Image(InputStream input) throws IOException {
+        this(ImageIO.read(input), "stream");
+    }
+
+    private Image(BufferedImage im, String name) throws IOException {
+        if (im == null) {
+            throw new IOException("Unsupported image format: " + name);
+        }
         width = im.getWidth();
         height = im.getHeight();
 
+        // Bulk copy of the whole raster, converted to ARGB by the color model
+        pixels = im.getRGB(0, 0, width, height, null, 0, width);
+    }
 
-        pixelArray = new Color[height][width];
+    public Image(Color[][] pixelArray, int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.pixels = new int[width * height];
         for (int i = 0; i < height; i++) {
             for (int j = 0; j < width; j++) {
-                pixelArray[i][j]=new Color(im.getRGB(j, i));
+                pixels[i * width + j] = pixelArray[i][j].getRGB();
             }
         }
     }
 
-    public Image(Color[][] pixelArray, int width, int height) {
-        this.pixelArray = pixelArray;
+    /**
+     * Wraps an existing packed pixel buffer without copying it.
+     *
+     * @param pixels ARGB pixels in row-major order, at least width * height long
+     * @param width Image width in pixels
+     * @param height Image height in pixels
+     */
+    public Image(int[] pixels, int width, int height) {
+        if (pixels.length < (long) width * height) {
+            throw new IllegalArgumentException("Pixel buffer is smaller than the image");
+        }
+        this.pixels = pixels;
         this.width = width;
         this.height = height;
     }
 
+    /**
+     * Reads an image decoding only as many pixels as a given output resolution needs.
+     * Pixels are skipped with {@link ImageReadParam} source subsampling, chosen from the
+     * block size so that each block keeps several samples per side and the subsampled
+     * image divides into the same grid of blocks as the full one.
+     *
+     * @param filename Path of the image file
+     * @param resolution Number of characters per output row
+     * @return The subsampled image
+     * @throws IOException if the file cannot be read or its format is not supported
+     * @throws IllegalArgumentException if the resolution does not fit the image
+     */
+    public static Image readSubsampled(String filename, int resolution) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new File(filename))) {
+            ImageReader reader = ImageReaders.open(input, filename);
+            try {
+                int factor = new BlockGrid(reader.getWidth(0), reader.getHeight(0), resolution)
+                        .subsamplingFactor();
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(factor, factor, 0, 0);
+                BufferedImage im = reader.read(0, param);
+                int width = im.getWidth();
+                int height = im.getHeight();
+                return new Image(im.getRGB(0, 0, width, height, null, 0, width), width, height);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Reads the dimensions of an encoded image from its header without decoding
+     * its pixels, so callers can check its size before paying for it.
+     *
+     * @param input Stream holding an encoded image, not closed by this method
+     * @return The image width and height
+     * @throws IOException if the stream cannot be read or its format is not supported
+     */
+    public static Dimension readSize(InputStream input) throws IOException {
+        try (ImageInputStream imageInput = ImageIO.createImageInputStream(input)) {
+            ImageReader reader = ImageReaders.open(imageInput, "stream");
+            try {
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
     public int getWidth() {
         return width;
     }
@@ -44,20 +133,53 @@ public class Image {
         return height;
     }
 
+    /**
+     * Compatibility view of a single pixel. Allocates a {@link Color}, so hot loops
+     * should use {@link #getRGB(int, int)} instead.
+     *
+     * @param x Row of the pixel
+     * @param y Column of the pixel
+     * @return The pixel color
+     */
     public Color getPixel(int x, int y) {
-        return pixelArray[x][y];
+        return new Color(getRGB(x, y));
     }
 
-    public void saveImage(String fileName){
-        // Initialize BufferedImage, assuming Color[][] is already properly populated.
-        BufferedImage bufferedImage = new BufferedImage(pixelArray[0].length, pixelArray.length,
-                BufferedImage.TYPE_INT_RGB);
-        // Set each pixel of the BufferedImage to the color from the Color[][].
-        for (int x = 0; x < pixelArray.length; x++) {
-            for (int y = 0; y < pixelArray[x].length; y++) {
-                bufferedImage.setRGB(y, x, pixelArray[x][y].getRGB());
-            }
+    /**
+     * Returns a pixel as a packed ARGB int.
+     *
+     * @param x Row of the pixel
+     * @param y Column of the pixel
+     * @return The packed ARGB value
+     */
+    public int getRGB(int x, int y) {
+        return pixels[x * width + y];
+    }
+
+    /**
+     * Returns the backing pixel buffer (ARGB, row-major). The array is shared, not copied.
+     *
+     * @return The packed pixels
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Returns the luminance integral image, building it on first use.
+     *
+     * @return The summed-area table of this image
+     */
+    public synchronized LuminanceIntegral getLuminanceIntegral() {
+        if (luminanceIntegral == null) {
+            luminanceIntegral = new LuminanceIntegral(this);
         }
+        return luminanceIntegral;
+    }
+
+    public void saveImage(String fileName){
+        BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        bufferedImage.setRGB(0, 0, width, height, pixels, 0, width);
         File outputfile = new File(fileName+".jpeg");
         try {
             ImageIO.write(bufferedImage, "jpeg", outputfile);
@@ -1,21 +1,40 @@
 package image;
-import java.awt.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.function.IntToDoubleFunction;
 
 
 /**
  * A utility class for image processing operations on ASCII art generation.
  * This class handles image padding to power-of-two dimensions, splitting into sub-images,
  * and calculating brightness values for ASCII art conversion.
+ * Padding is virtual: sub-images may extend past the image, and the pixels they
+ * cover outside it count as white without ever being stored.
  * @author Tomer Kadosh
  * @see Image
  */
 public class ImagePrepration {
+    /** Parallelism level that runs the brightness pass on the calling thread */
+    public static final int SEQUENTIAL = 1;
+
+    /** Number of row bands created per worker, to balance uneven bands */
+    private static final int BANDS_PER_WORKER = 4;
+
+    /** Fork-join pools shared by all instances, one per parallelism level */
+    private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
     /** The source image to be processed */
     Image image;
 
     /** The number of columns to split the image into */
     int resolution;
 
+    /** Number of worker threads used for the brightness pass */
+    private int parallelism = SEQUENTIAL;
+
     /**
      * Constructs an ImagePrepration object with the specified image and resolution.
      *
@@ -28,42 +47,43 @@ public class ImagePrepration {
     }
 
     /**
-     * Pads the image to dimensions that are powers of two by adding white space.
-     * The original image is centered within the padded dimensions.
+     * Sets the number of threads used to compute block brightness.
+     * Blocks are independent, so every parallelism level produces exactly the same result.
+     *
+     * @param parallelism Number of worker threads, {@link #SEQUENTIAL} for a single thread
+     * @throws IllegalArgumentException if parallelism is not positive
      */
-    private void imagePadding(){
-        int orignalWidth = image.getWidth();
-        int orignalHigt = image.getHeight();
-        int newWidth = orignalWidth;
-        int newHight = orignalHigt;
-
-        // Adjust dimensions to nearest power of two if needed
-        if(!isPowerOfTwo(orignalWidth)){
-            newWidth = getPowerOfTwo(orignalWidth);
-        }
-        if (!isPowerOfTwo(orignalWidth)){
-            newHight = getPowerOfTwo(orignalHigt);
+    public void setParallelism(int parallelism) {
+        if (parallelism < SEQUENTIAL) {
+            throw new IllegalArgumentException("Parallelism must be positive");
         }
+        this.parallelism = parallelism;
+    }
 
-        int widthDiff = newWidth - orignalWidth;
-        int hightDiff = newHight - orignalHigt;
-
-        // Initialize padded image with white background
-        Color[][] paddedImage = new Color[newHight][newWidth];
-        for (int x = 0; x < newHight; x++) {
-            for (int y = 0; y < newWidth; y++) {
-                paddedImage[x][y] = Color.WHITE;
-            }
+    /**
+     * Calculates the padded width of an image, the nearest power of two.
+     *
+     * @param orignalWidth Width of the unpadded image
+     * @return The padded width
+     */
+    static int paddedWidth(int orignalWidth) {
+        if (!isPowerOfTwo(orignalWidth)) {
+            return getPowerOfTwo(orignalWidth);
         }
+        return orignalWidth;
+    }
 
-        // Copy original image centered in padded area
-        for (int i = 0; i < orignalHigt; i++) {
-            for (int j = 0; j < orignalWidth; j++) {
-                paddedImage[i + hightDiff/2][j + widthDiff/2] = image.getPixel(i, j);
-            }
+    /**
+     * Calculates the padded height of an image, the nearest power of two.
+     *
+     * @param orignalHigt Height of the unpadded image
+     * @return The padded height
+     */
+    static int paddedHeight(int orignalHigt) {
+        if (!isPowerOfTwo(orignalHigt)) {
+            return getPowerOfTwo(orignalHigt);
         }
-
-        image = new Image(paddedImage, newWidth, newHight);
+        return orignalHigt;
     }
 
     /**
@@ -72,7 +92,7 @@ public class ImagePrepration {
      * @param n Number to check
      * @return true if n is a power of two, false otherwise
      */
-    private boolean isPowerOfTwo(int n){
+    private static boolean isPowerOfTwo(int n){
         return n > 0 && (n & (n - 1)) == 0;
     }
 
@@ -82,78 +102,65 @@ public class ImagePrepration {
      * @param n Input number
      * @return The next power of two
      */
-    private int getPowerOfTwo(int n){
+    private static int getPowerOfTwo(int n){
         int exp = (int) Math.ceil(Math.log(n) / Math.log(2));
         return (int) Math.pow(2, exp);
     }
 
     /**
-     * Splits the image into a grid of equal-sized square sub-images.
-     * The image width and height must be evenly divisible by the block size.
+     * Splits the virtually padded image into a grid of equal-sized square sub-image views.
+     * No pixels are copied; each view reads directly from the image, and views over the
+     * padding read it as white.
      *
-     * @return 2D array of sub-images
-     * @throws IllegalArgumentException if image dimensions are not divisible by the block size
+     * @return 2D array of sub-image views
+     * @throws IllegalArgumentException if padded dimensions are not divisible by the block size
      */
-    private Image[][] splitToSquareSubImages() {
-        int imageW = image.getWidth();
-        int imageH = image.getHeight();
-        int blockSize = imageW / resolution;
-
-        if (imageW % blockSize != 0 || imageH % blockSize != 0) {
-            throw new IllegalArgumentException("Image dimensions must be divisible by block size");
-        }
+    private SubImage[][] splitToSquareSubImages() {
+        BlockGrid grid = new BlockGrid(image.getWidth(), image.getHeight(), resolution);
+        int blockSize = grid.getBlockSize();
+        SubImage[][] subImages = new SubImage[grid.getRows()][grid.getCols()];
 
-        int rows = imageH / blockSize;
-        int cols = resolution;
-        Image[][] subImages = new Image[rows][cols];
-
-        // Create sub-images by copying pixel blocks
-        for (int blockRow = 0; blockRow < rows; blockRow++) {
-            for (int blockCol = 0; blockCol < cols; blockCol++) {
-                Color[][] blockPixels = new Color[blockSize][blockSize];
-                for (int i = 0; i < blockSize; i++) {
-                    for (int j = 0; j < blockSize; j++) {
-                        int srcRow = blockRow * blockSize + i;
-                        int srcCol = blockCol * blockSize + j;
-                        blockPixels[i][j] = image.getPixel(srcRow, srcCol);
-                    }
-                }
-                subImages[blockRow][blockCol] = new Image(blockPixels, blockSize, blockSize);
+        // Create a view over each pixel block
+        for (int blockRow = 0; blockRow < grid.getRows(); blockRow++) {
+            for (int blockCol = 0; blockCol < grid.getCols(); blockCol++) {
+                subImages[blockRow][blockCol] = new SubImage(image,
+                        grid.rowStart(blockRow), grid.colStart(blockCol), blockSize, blockSize);
             }
         }
         return subImages;
     }
 
     /**
-     * Calculates the average brightness of an image using the luminance formula:
+     * Calculates the average brightness of a sub-image using the luminance formula:
      * Y = 0.2126R + 0.7152G + 0.0722B
      *
-     * @param image The image to analyze
+     * @param subImage The sub-image view to analyze
      * @return Normalized brightness value between 0 and 1
      */
-    private double calculateImageBrightness(Image image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-        double totalBrightness = 0;
+    private double calculateImageBrightness(SubImage subImage) {
+        int[] pixels = subImage.pixels();
+        int firstCol = subImage.firstCoveredCol();
+        int endCol = subImage.endCoveredCol();
+        LuminanceKernel kernel = LuminanceKernels.current();
+        long totalBrightness = 0;
 
-        // Sum weighted RGB values for each pixel
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                Color pixelColor = image.getPixel(x, y);
-                double greyPixel = (pixelColor.getRed()*0.2126 +
-                        pixelColor.getGreen()*0.7152 +
-                        pixelColor.getBlue()*0.0722);
-                totalBrightness += greyPixel;
-            }
+        // Sum weighted RGB values for each image pixel, row by row in the parent buffer
+        for (int x = subImage.firstCoveredRow(); x < subImage.endCoveredRow(); x++) {
+            int offset = subImage.rowOffset(x);
+            totalBrightness += kernel.sum(pixels, offset + firstCol, offset + endCol);
         }
 
+        // Padded pixels are white
+        long area = (long) subImage.getWidth() * subImage.getHeight();
+        totalBrightness += (area - subImage.coveredArea()) * Luminance.MAX_LUMINANCE;
+
         // Normalize to [0,1] range
-        return (totalBrightness / (width * height)) / 255.0;
+        return Luminance.toBrightness(totalBrightness, area);
     }
 
     /**
      * Main processing method that calculates brightness values for all sub-images.
-     * The process includes padding the image, splitting it into sub-images, and
+     * The process includes splitting the virtually padded image into sub-images and
      * calculating brightness for each sub-image.
      *
      * @param image The image to analyze
@@ -161,17 +168,361 @@ public class ImagePrepration {
      * @return 2D array of brightness values for each sub-image
      */
     public double[][] calculateBrightnessForALL(Image image, int resolution){
-        imagePadding();
-        Image[][] subImages = splitToSquareSubImages();
+        SubImage[][] subImages = splitToSquareSubImages();
         double[][] brightnessValues = new double[subImages.length][subImages[0].length];
 
         // Calculate brightness for each sub-image
-        for (int blockRow = 0; blockRow < subImages.length; blockRow++) {
+        forEachBlockRow(subImages.length, blockRow -> {
             for (int blockCol = 0; blockCol < subImages[0].length; blockCol++) {
                 brightnessValues[blockRow][blockCol] =
                         calculateImageBrightness(subImages[blockRow][blockCol]);
             }
+        });
+        return brightnessValues;
+    }
+
+    /**
+     * Calculates the brightness and the average color of every sub-image in a single
+     * pass over the pixels, so color output costs about as much as greyscale output.
+     *
+     * @return Brightness and average color of each sub-image
+     */
+    public BlockStatistics calculateBrightnessAndColorForALL() {
+        SubImage[][] subImages = splitToSquareSubImages();
+        double[][] brightnessValues = new double[subImages.length][subImages[0].length];
+        int[][] colors = new int[subImages.length][subImages[0].length];
+
+        forEachBlockRow(subImages.length, blockRow -> {
+            for (int blockCol = 0; blockCol < subImages[0].length; blockCol++) {
+                calculateImageBrightnessAndColor(subImages[blockRow][blockCol],
+                        brightnessValues[blockRow], colors[blockRow], blockCol);
+            }
+        });
+        return new BlockStatistics(brightnessValues, colors);
+    }
+
+    /**
+     * Calculates the brightness and average color of a sub-image in one pass.
+     *
+     * @param subImage The sub-image view to analyze
+     * @param brightnessRow Row of the brightness grid to store the brightness in
+     * @param colorRow Row of the color grid to store the color in
+     * @param blockCol Column of the sub-image in the grid
+     */
+    private void calculateImageBrightnessAndColor(SubImage subImage, double[] brightnessRow,
+                                                  int[] colorRow, int blockCol) {
+        int[] pixels = subImage.pixels();
+        int firstCol = subImage.firstCoveredCol();
+        int endCol = subImage.endCoveredCol();
+        long totalBrightness = 0;
+        long red = 0;
+        long green = 0;
+        long blue = 0;
+
+        for (int x = subImage.firstCoveredRow(); x < subImage.endCoveredRow(); x++) {
+            int offset = subImage.rowOffset(x);
+            for (int y = firstCol; y < endCol; y++) {
+                int rgb = pixels[offset + y];
+                int r = (rgb >> 16) & 0xFF;
+                int g = (rgb >> 8) & 0xFF;
+                int b = rgb & 0xFF;
+                totalBrightness += r * Luminance.RED_WEIGHT + g * Luminance.GREEN_WEIGHT +
+                        b * Luminance.BLUE_WEIGHT;
+                red += r;
+                green += g;
+                blue += b;
+            }
         }
+
+        // Padded pixels are white in every channel
+        long pixelCount = (long) subImage.getWidth() * subImage.getHeight();
+        long padding = pixelCount - subImage.coveredArea();
+        totalBrightness += padding * Luminance.MAX_LUMINANCE;
+        red += padding * Luminance.CHANNEL_MAX;
+        green += padding * Luminance.CHANNEL_MAX;
+        blue += padding * Luminance.CHANNEL_MAX;
+
+        brightnessRow[blockCol] = Luminance.toBrightness(totalBrightness, pixelCount);
+        colorRow[blockCol] = (int) (red / pixelCount) << 16 |
+                (int) (green / pixelCount) << 8 | (int) (blue / pixelCount);
+    }
+
+    /**
+     * Calculates brightness values for all sub-images using the image's luminance
+     * integral table instead of padding and splitting it.
+     * The padding is virtual: each block sums the image pixels it covers from the table
+     * and counts every padded pixel it covers as white. Since the table is built once
+     * per image, changing the resolution only costs four lookups per block.
+     *
+     * @return 2D array of brightness values for each sub-image
+     * @throws IllegalArgumentException if padded dimensions are not divisible by the block size
+     */
+    public double[][] calculateBrightnessWithIntegral() {
+        LuminanceIntegral integral = image.getLuminanceIntegral();
+        BlockGrid grid = new BlockGrid(image.getWidth(), image.getHeight(), resolution);
+        int blockSize = grid.getBlockSize();
+        double[][] brightnessValues = new double[grid.getRows()][grid.getCols()];
+
+        forEachBlockRow(grid.getRows(), blockRow -> {
+            int rowStart = grid.rowStart(blockRow);
+            for (int blockCol = 0; blockCol < grid.getCols(); blockCol++) {
+                int colStart = grid.colStart(blockCol);
+                // Pixels of the image, the grid adds white for the padded remainder
+                long sum = integral.sum(rowStart, colStart,
+                        rowStart + blockSize, colStart + blockSize);
+                brightnessValues[blockRow][blockCol] = grid.brightness(sum, blockRow, blockCol);
+            }
+        });
+        return brightnessValues;
+    }
+
+    /**
+     * Calculates brightness values for exactly {@code resolution} blocks per row of the
+     * unpadded image, using the image's luminance integral table.
+     * Block boundaries may fall inside pixels; such pixels count in proportion to the
+     * area the block covers, so any resolution up to the image width is supported and
+     * the output has no white padding bands.
+     *
+     * @return 2D array of brightness values for each block
+     * @throws IllegalArgumentException if the resolution exceeds the image width
+     */
+    public double[][] calculateBrightnessAreaWeighted() {
+        LuminanceIntegral integral = image.getLuminanceIntegral();
+        FractionalGrid grid = new FractionalGrid(image.getWidth(), image.getHeight(), resolution);
+        double blockLuminance = grid.blockArea() * Luminance.MAX_LUMINANCE;
+        double[][] brightnessValues = new double[grid.getRows()][grid.getCols()];
+
+        forEachBlockRow(grid.getRows(), blockRow -> {
+            double top = grid.top(blockRow);
+            double bottom = grid.top(blockRow + 1);
+            for (int blockCol = 0; blockCol < grid.getCols(); blockCol++) {
+                double sum = integral.areaSum(top, grid.left(blockCol),
+                        bottom, grid.left(blockCol + 1));
+                brightnessValues[blockRow][blockCol] = sum / blockLuminance;
+            }
+        });
         return brightnessValues;
     }
-}
\ No newline at end of file
+
+    /**
+     * Calculates the brightness and the average color of exactly {@code resolution}
+     * blocks per row of the unpadded image in a single pass over the pixels, weighting
+     * pixels on block boundaries by the area the block covers.
+     *
+     * @return Brightness and average color of each block
+     * @throws IllegalArgumentException if the resolution exceeds the image width
+     */
+    public BlockStatistics calculateBrightnessAndColorAreaWeighted() {
+        FractionalGrid grid = new FractionalGrid(image.getWidth(), image.getHeight(), resolution);
+        double[][] brightnessValues = new double[grid.getRows()][grid.getCols()];
+        int[][] colors = new int[grid.getRows()][grid.getCols()];
+
+        forEachBlockRow(grid.getRows(), blockRow -> {
+            for (int blockCol = 0; blockCol < grid.getCols(); blockCol++) {
+                calculateAreaWeightedBlock(grid, blockRow, blockCol,
+                        brightnessValues[blockRow], colors[blockRow]);
+            }
+        });
+        return new BlockStatistics(brightnessValues, colors);
+    }
+
+    /**
+     * Calculates the brightness and average color of a block with fractional boundaries.
+     *
+     * @param grid The fractional grid
+     * @param blockRow The block row
+     * @param blockCol The block column
+     * @param brightnessRow Row of the brightness grid to store the brightness in
+     * @param colorRow Row of the color grid to store the color in
+     */
+    private void calculateAreaWeightedBlock(FractionalGrid grid, int blockRow, int blockCol,
+                                            double[] brightnessRow, int[] colorRow) {
+        double top = grid.top(blockRow);
+        double bottom = grid.top(blockRow + 1);
+        double left = grid.left(blockCol);
+        double right = grid.left(blockCol + 1);
+        int lastRow = Math.min((int) Math.ceil(bottom), image.getHeight());
+        int lastCol = Math.min((int) Math.ceil(right), image.getWidth());
+        int[] pixels = image.getPixels();
+        int width = image.getWidth();
+        double totalBrightness = 0;
+        double red = 0;
+        double green = 0;
+        double blue = 0;
+
+        for (int x = (int) top; x < lastRow; x++) {
+            // Part of the pixel row inside the block
+            double rowWeight = Math.min(bottom, x + 1) - Math.max(top, x);
+            for (int y = (int) left; y < lastCol; y++) {
+                double weight = rowWeight * (Math.min(right, y + 1) - Math.max(left, y));
+                int rgb = pixels[x * width + y];
+                int r = (rgb >> 16) & 0xFF;
+                int g = (rgb >> 8) & 0xFF;
+                int b = rgb & 0xFF;
+                totalBrightness += weight * (r * Luminance.RED_WEIGHT + g * Luminance.GREEN_WEIGHT +
+                        b * Luminance.BLUE_WEIGHT);
+                red += weight * r;
+                green += weight * g;
+                blue += weight * b;
+            }
+        }
+
+        double area = grid.blockArea();
+        brightnessRow[blockCol] = totalBrightness / (area * Luminance.MAX_LUMINANCE);
+        // Truncated like the padded pass, so both grids agree where their blocks coincide
+        colorRow[blockCol] = (int) (red / area) << 16 |
+                (int) (green / area) << 8 | (int) (blue / area);
+    }
+
+    /**
+     * Thresholds every block of the virtually padded grid into a mask of
+     * {@code maskSize x maskSize} cells, for matching blocks by shape.
+     *
+     * @param maskSize Cells per block side
+     * @return The packed mask of each block
+     * @throws IllegalArgumentException if padded dimensions are not divisible by the block size
+     */
+    public BlockMasks calculateBlockMasks(int maskSize) {
+        BlockGrid grid = new BlockGrid(image.getWidth(), image.getHeight(), resolution);
+        return calculateBlockMasks(grid.getRows(), grid.getCols(), grid::rowStart,
+                grid::colStart, maskSize);
+    }
+
+    /**
+     * Thresholds every block of the unpadded image, exactly {@code resolution} blocks
+     * per row, into a mask of {@code maskSize x maskSize} cells.
+     *
+     * @param maskSize Cells per block side
+     * @return The packed mask of each block
+     * @throws IllegalArgumentException if the resolution exceeds the image width
+     */
+    public BlockMasks calculateBlockMasksAreaWeighted(int maskSize) {
+        FractionalGrid grid = new FractionalGrid(image.getWidth(), image.getHeight(), resolution);
+        return calculateBlockMasks(grid.getRows(), grid.getCols(), grid::top, grid::left,
+                maskSize);
+    }
+
+    /**
+     * Thresholds the blocks of a grid into cell masks. Cells may be smaller than a pixel
+     * or have fractional bounds; their luminance comes from the integral table at the
+     * cell corners, and the part of a cell outside the image counts as white. A cell is
+     * set when it is at least as bright as the image's mean.
+     *
+     * @param rows Number of block rows
+     * @param cols Number of block columns
+     * @param top Image row where a block row starts; block row {@code rows} ends the last one
+     * @param left Image column where a block column starts; column {@code cols} ends the last one
+     * @param maskSize Cells per block side
+     * @return The packed mask of each block
+     */
+    private BlockMasks calculateBlockMasks(int rows, int cols, IntToDoubleFunction top,
+                                           IntToDoubleFunction left, int maskSize) {
+        LuminanceIntegral integral = image.getLuminanceIntegral();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double threshold = (double) integral.sum(0, 0, height, width) / ((double) width * height);
+        BlockMasks masks = new BlockMasks(rows, cols, maskSize);
+        int corners = maskSize + 1;
+
+        forEachBlockRow(rows, blockRow -> {
+            // Integrals from the origin to each cell corner, of luminance and of coverage
+            double[] luminance = new double[corners * corners];
+            double[] coverage = new double[corners * corners];
+            double blockTop = top.applyAsDouble(blockRow);
+            double cellHeight = (top.applyAsDouble(blockRow + 1) - blockTop) / maskSize;
+            for (int blockCol = 0; blockCol < cols; blockCol++) {
+                double blockLeft = left.applyAsDouble(blockCol);
+                double cellWidth = (left.applyAsDouble(blockCol + 1) - blockLeft) / maskSize;
+                for (int i = 0; i < corners; i++) {
+                    double y = blockTop + i * cellHeight;
+                    double coveredY = Math.max(0, Math.min(y, height));
+                    for (int j = 0; j < corners; j++) {
+                        double x = blockLeft + j * cellWidth;
+                        luminance[i * corners + j] = integral.integralTo(y, x);
+                        coverage[i * corners + j] = coveredY * Math.max(0, Math.min(x, width));
+                    }
+                }
+
+                double cellArea = cellHeight * cellWidth;
+                double minimum = threshold * cellArea;
+                int offset = masks.offset(blockRow, blockCol);
+                for (int i = 0; i < maskSize; i++) {
+                    for (int j = 0; j < maskSize; j++) {
+                        int corner = i * corners + j;
+                        double cellLuminance = difference(luminance, corner, corners);
+                        double padding = cellArea - difference(coverage, corner, corners);
+                        if (cellLuminance + padding * Luminance.MAX_LUMINANCE >= minimum) {
+                            masks.set(offset, i * maskSize + j);
+                        }
+                    }
+                }
+            }
+        });
+        return masks;
+    }
+
+    /**
+     * Combines the corner integrals of a cell into the integral over the cell.
+     *
+     * @param integrals Integrals at the cell corners, row-major
+     * @param corner Index of the cell's top-left corner
+     * @param corners Corners per row
+     * @return The integral over the cell
+     */
+    private static double difference(double[] integrals, int corner, int corners) {
+        return integrals[corner + corners + 1] - integrals[corner + 1]
+                - integrals[corner + corners] + integrals[corner];
+    }
+
+    /**
+     * Runs the given action for every block row, either on the calling thread or split
+     * into row bands on a fork-join pool, according to the parallelism level.
+     *
+     * @param rows Number of block rows
+     * @param rowAction Computes all blocks of a single row
+     */
+    private void forEachBlockRow(int rows, IntConsumer rowAction) {
+        if (parallelism == SEQUENTIAL || rows < 2) {
+            for (int blockRow = 0; blockRow < rows; blockRow++) {
+                rowAction.accept(blockRow);
+            }
+            return;
+        }
+        int bandSize = Math.max(1, rows / (parallelism * BANDS_PER_WORKER));
+        ForkJoinPool pool = POOLS.computeIfAbsent(parallelism, ForkJoinPool::new);
+        pool.invoke(new RowBandTask(rowAction, 0, rows, bandSize));
+    }
+
+    /**
+     * Fork-join task computing a band of block rows, splitting it in half
+     * until it is no larger than the band size.
+     */
+    private static class RowBandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IntConsumer rowAction;
+        private final int fromRow;
+        private final int toRow;
+        private final int bandSize;
+
+        RowBandTask(IntConsumer rowAction, int fromRow, int toRow, int bandSize) {
+            this.rowAction = rowAction;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.bandSize = bandSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= bandSize) {
+                for (int blockRow = fromRow; blockRow < toRow; blockRow++) {
+                    rowAction.accept(blockRow);
+                }
+                return;
+            }
+            int middle = (fromRow + toRow) >>> 1;
+            invokeAll(new RowBandTask(rowAction, fromRow, middle, bandSize),
+                    new RowBandTask(rowAction, middle, toRow, bandSize));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package image;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Helpers for decoding image files through an {@link ImageReader}, used by the
+ * decode paths that need more control than {@link ImageIO#read(java.io.File)}.
+ * @author Tomer Kadosh
+ */
+final class ImageReaders {
+    private ImageReaders() {
+    }
+
+    /**
+     * Finds a reader for an image stream and attaches it to the stream.
+     * The caller must dispose of the reader.
+     *
+     * @param input The opened image stream, may be null if the file could not be opened
+     * @param filename Name of the file, for error messages
+     * @return A reader positioned at the stream's start
+     * @throws IOException if the file could not be opened or its format is not supported
+     */
+    static ImageReader open(ImageInputStream input, String filename) throws IOException {
+        if (input == null) {
+            throw new IOException("Cannot open " + filename);
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            throw new IOException("Unsupported image format: " + filename);
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(input, false, true);
+        return reader;
+    }
+}
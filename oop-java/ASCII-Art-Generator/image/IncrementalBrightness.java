@@ -0,0 +1,132 @@
+package image;
+
+import java.awt.Rectangle;
+
+/**
+ * Computes the brightness grid of a sequence of frames, skipping the blocks known to
+ * be unchanged since the previous frame.
+ * Blocks outside the changed region of a frame are not read at all. The others are
+ * summed once and compared with the luminance sum of the same block in the previous
+ * frame, which is all that is kept of it; a block's brightness depends only on its
+ * sum, so the result always equals a full brightness pass over the frame.
+ * @author Tomer Kadosh
+ * @see AnimatedGifReader
+ */
+public class IncrementalBrightness {
+    private final int resolution;
+    private BlockGrid grid;
+    private int width;
+    private int height;
+    /** Luminance sum of each block of the previous frame, or null before the first frame */
+    private long[][] previousSums;
+    private double[][] brightness;
+    private long recomputedBlocks;
+    private long changedBlocks;
+    private long totalBlocks;
+
+    /**
+     * Creates a tracker for frames converted at the given resolution.
+     *
+     * @param resolution Number of blocks per row
+     */
+    public IncrementalBrightness(int resolution) {
+        this.resolution = resolution;
+    }
+
+    /**
+     * Calculates the brightness grid of the next frame.
+     *
+     * @param frame The frame
+     * @return The brightness grid, valid until the next call
+     * @throws IllegalArgumentException if the resolution does not fit the frame
+     */
+    public double[][] update(Image frame) {
+        return update(frame, null);
+    }
+
+    /**
+     * Calculates the brightness grid of the next frame, given a hint of where it
+     * may differ from the previous one.
+     *
+     * @param frame The frame
+     * @param changedRegion Region outside of which the frame is known to be unchanged,
+     *                      or null to compare the whole frame
+     * @return The brightness grid, valid until the next call
+     * @throws IllegalArgumentException if the resolution does not fit the frame
+     */
+    public double[][] update(Image frame, Rectangle changedRegion) {
+        if (previousSums == null || frame.getWidth() != width || frame.getHeight() != height) {
+            width = frame.getWidth();
+            height = frame.getHeight();
+            grid = new BlockGrid(width, height, resolution);
+            brightness = new double[grid.getRows()][grid.getCols()];
+            previousSums = null;
+        }
+        boolean first = previousSums == null;
+        if (first) {
+            previousSums = new long[grid.getRows()][grid.getCols()];
+        }
+
+        int[] pixels = frame.getPixels();
+        int blockSize = grid.getBlockSize();
+        LuminanceKernel kernel = LuminanceKernels.current();
+        for (int blockRow = 0; blockRow < grid.getRows(); blockRow++) {
+            int rowStart = Math.max(grid.rowStart(blockRow), 0);
+            int rowEnd = Math.min(grid.rowStart(blockRow) + blockSize, height);
+            for (int blockCol = 0; blockCol < grid.getCols(); blockCol++) {
+                int colStart = Math.max(grid.colStart(blockCol), 0);
+                int colEnd = Math.min(grid.colStart(blockCol) + blockSize, width);
+                totalBlocks++;
+                if (!first && !intersects(changedRegion, rowStart, colStart, rowEnd, colEnd)) {
+                    continue;
+                }
+                recomputedBlocks++;
+                long sum = 0;
+                for (int row = rowStart; row < rowEnd && colStart < colEnd; row++) {
+                    int offset = row * width;
+                    sum += kernel.sum(pixels, offset + colStart, offset + colEnd);
+                }
+                if (first || sum != previousSums[blockRow][blockCol]) {
+                    changedBlocks++;
+                    previousSums[blockRow][blockCol] = sum;
+                    brightness[blockRow][blockCol] = grid.brightness(sum, blockRow, blockCol);
+                }
+            }
+        }
+        return brightness;
+    }
+
+    /**
+     * Checks whether a block covers image pixels inside the changed region.
+     */
+    private static boolean intersects(Rectangle changedRegion,
+                                      int rowStart, int colStart, int rowEnd, int colEnd) {
+        if (rowStart >= rowEnd || colStart >= colEnd) {
+            return false;
+        }
+        return changedRegion == null || changedRegion.intersects(
+                colStart, rowStart, colEnd - colStart, rowEnd - rowStart);
+    }
+
+    /**
+     * @return Number of blocks whose luminance was summed so far
+     */
+    public long getRecomputedBlocks() {
+        return recomputedBlocks;
+    }
+
+    /**
+     * @return Number of blocks whose brightness changed so far, counting every block
+     *         of the first frame
+     */
+    public long getChangedBlocks() {
+        return changedBlocks;
+    }
+
+    /**
+     * @return Number of blocks in all frames so far
+     */
+    public long getTotalBlocks() {
+        return totalBlocks;
+    }
+}
@@ -0,0 +1,49 @@
+package image;
+
+/**
+ * Fixed-point luminance helpers shared by the brightness passes.
+ * Luminance is computed with the weights Y = 0.2126R + 0.7152G + 0.0722B scaled by
+ * {@link #WEIGHT_SCALE}, so sums over any number of pixels are exact integers and
+ * every brightness pass produces identical results regardless of summation order.
+ * @author Tomer Kadosh
+ */
+public final class Luminance {
+    /** Scale applied to the luminance weights */
+    public static final int WEIGHT_SCALE = 10000;
+    /** Scaled weight of the red channel */
+    public static final int RED_WEIGHT = 2126;
+    /** Scaled weight of the green channel */
+    public static final int GREEN_WEIGHT = 7152;
+    /** Scaled weight of the blue channel */
+    public static final int BLUE_WEIGHT = 722;
+    /** Value of a fully lit color channel */
+    public static final int CHANNEL_MAX = 255;
+    /** Scaled luminance of a white pixel, the maximum a pixel can have */
+    public static final int MAX_LUMINANCE = CHANNEL_MAX * WEIGHT_SCALE;
+
+    private Luminance() {
+    }
+
+    /**
+     * Computes the scaled luminance of a packed ARGB pixel.
+     *
+     * @param argb The packed pixel
+     * @return Luminance in the range [0, MAX_LUMINANCE]
+     */
+    public static int of(int argb) {
+        return ((argb >> 16) & 0xFF) * RED_WEIGHT +
+                ((argb >> 8) & 0xFF) * GREEN_WEIGHT +
+                (argb & 0xFF) * BLUE_WEIGHT;
+    }
+
+    /**
+     * Converts a luminance sum over a number of pixels to a brightness in [0,1].
+     *
+     * @param luminanceSum Sum of scaled luminance values
+     * @param pixelCount Number of pixels summed
+     * @return Normalized average brightness
+     */
+    public static double toBrightness(long luminanceSum, long pixelCount) {
+        return (double) luminanceSum / ((double) pixelCount * MAX_LUMINANCE);
+    }
+}
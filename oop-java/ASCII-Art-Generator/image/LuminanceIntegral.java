@@ -0,0 +1,126 @@
+package image;
+
+/**
+ * Summed-area table (integral image) of pixel luminance.
+ * Entry (r, c) holds the luminance sum of all pixels above and to the left of (r, c),
+ * so the sum over any rectangle is an O(1) combination of four entries. The table is
+ * built once per {@link Image} and reused for every resolution.
+ * @author Tomer Kadosh
+ * @see Image#getLuminanceIntegral()
+ */
+public class LuminanceIntegral {
+    /** Row-major table of (height + 1) x (width + 1) prefix sums */
+    private final long[] table;
+    /** Width of the table, one more than the image width */
+    private final int stride;
+    private final int width;
+    private final int height;
+
+    /**
+     * Builds the integral table of the given image in a single pass over its pixels.
+     *
+     * @param image The image to index
+     * @throws IllegalArgumentException if the table would have more entries than an array holds
+     */
+    LuminanceIntegral(Image image) {
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.stride = width + 1;
+        long entries = (long) (height + 1) * stride;
+        if (entries > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Image is too large for an integral table");
+        }
+        this.table = new long[(int) entries];
+
+        int[] pixels = image.getPixels();
+        LuminanceKernel kernel = LuminanceKernels.current();
+        int[] rowLuminance = new int[width];
+        for (int row = 0; row < height; row++) {
+            kernel.luminance(pixels, row * width, rowLuminance, 0, width);
+            long rowSum = 0;
+            int above = row * stride;
+            int current = above + stride;
+            for (int col = 0; col < width; col++) {
+                rowSum += rowLuminance[col];
+                table[current + col + 1] = table[above + col + 1] + rowSum;
+            }
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the luminance sum over a rectangle of the image.
+     * Bounds are clamped to the image, so regions partly outside of it sum only
+     * the pixels they actually cover.
+     *
+     * @param top First row (inclusive)
+     * @param left First column (inclusive)
+     * @param bottom Last row (exclusive)
+     * @param right Last column (exclusive)
+     * @return The scaled luminance sum, 0 for an empty region
+     */
+    public long sum(int top, int left, int bottom, int right) {
+        top = clamp(top, height);
+        bottom = clamp(bottom, height);
+        left = clamp(left, width);
+        right = clamp(right, width);
+        if (top >= bottom || left >= right) {
+            return 0;
+        }
+        return table[bottom * stride + right] - table[top * stride + right]
+                - table[bottom * stride + left] + table[top * stride + left];
+    }
+
+    /**
+     * Returns the luminance integral over a rectangle with fractional bounds, weighting
+     * each pixel by the area of it the rectangle covers.
+     * Within a pixel the luminance is constant, so the integral from the origin to any
+     * point is the bilinear interpolation of the four surrounding table entries, and
+     * the result is exact up to floating point rounding.
+     * Bounds are clamped to the image.
+     *
+     * @param top First row
+     * @param left First column
+     * @param bottom Last row
+     * @param right Last column
+     * @return The area-weighted scaled luminance sum
+     */
+    public double areaSum(double top, double left, double bottom, double right) {
+        return integralTo(bottom, right) - integralTo(top, right)
+                - integralTo(bottom, left) + integralTo(top, left);
+    }
+
+    /**
+     * Returns the luminance integral over the rectangle from the origin to a point,
+     * which may be fractional. Coordinates are clamped to the image.
+     *
+     * @param row Row coordinate of the point
+     * @param col Column coordinate of the point
+     * @return The interpolated integral
+     */
+    public double integralTo(double row, double col) {
+        row = Math.max(0, Math.min(row, height));
+        col = Math.max(0, Math.min(col, width));
+        int r = (int) row;
+        int c = (int) col;
+        double rowFraction = row - r;
+        double colFraction = col - c;
+        int nextRow = Math.min(r + 1, height) * stride;
+        int nextCol = Math.min(c + 1, width);
+        r *= stride;
+        return (table[r + c] * (1 - colFraction) + table[r + nextCol] * colFraction) * (1 - rowFraction)
+                + (table[nextRow + c] * (1 - colFraction) + table[nextRow + nextCol] * colFraction)
+                * rowFraction;
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max));
+    }
+}
@@ -0,0 +1,31 @@
+package image;
+
+/**
+ * The innermost luminance loops of the brightness passes, over packed ARGB pixels.
+ * Implementations use the fixed-point weights of {@link Luminance}, so every kernel
+ * produces exactly the same sums.
+ * @author Tomer Kadosh
+ * @see LuminanceKernels
+ */
+public interface LuminanceKernel {
+    /**
+     * Sums the scaled luminance of a run of pixels.
+     *
+     * @param pixels Packed ARGB pixels
+     * @param from Index of the first pixel (inclusive)
+     * @param to Index of the last pixel (exclusive)
+     * @return The luminance sum
+     */
+    long sum(int[] pixels, int from, int to);
+
+    /**
+     * Computes the scaled luminance of each pixel of a run.
+     *
+     * @param pixels Packed ARGB pixels
+     * @param from Index of the first pixel
+     * @param out Array receiving the luminance values
+     * @param outFrom Index of the first value in out
+     * @param length Number of pixels
+     */
+    void luminance(int[] pixels, int from, int[] out, int outFrom, int length);
+}
@@ -0,0 +1,67 @@
+package image;
+
+/**
+ * Selects the luminance kernel used by the brightness passes.
+ * The vectorized kernel is used when it was compiled from the {@code simd} source root
+ * and the JVM was started with the {@code jdk.incubator.vector} module
+ * ({@code --add-modules jdk.incubator.vector}) unless the system property {@value #SIMD_PROPERTY} is {@code false}; otherwise the
+ * scalar kernel is used. The choice can also be switched at runtime.
+ * @author Tomer Kadosh
+ */
+public final class LuminanceKernels {
+    /** System property that disables the vectorized kernel when set to false */
+    public static final String SIMD_PROPERTY = "ascii_art.simd";
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_KERNEL = "image.VectorLuminanceKernel";
+
+    private static final LuminanceKernel SCALAR = new ScalarLuminanceKernel();
+    /** The vectorized kernel, or null if the Vector API is not available */
+    private static final LuminanceKernel VECTOR = loadVectorKernel();
+
+    private static volatile LuminanceKernel current =
+            VECTOR != null && !"false".equals(System.getProperty(SIMD_PROPERTY)) ? VECTOR : SCALAR;
+
+    private LuminanceKernels() {
+    }
+
+    /**
+     * @return The kernel the brightness passes should use
+     */
+    public static LuminanceKernel current() {
+        return current;
+    }
+
+    /**
+     * Switches between the vectorized and the scalar kernel.
+     *
+     * @param vectorized Whether to use the vectorized kernel
+     * @return Whether the vectorized kernel is now in use, false if it is not available
+     */
+    public static boolean setVectorized(boolean vectorized) {
+        current = vectorized && VECTOR != null ? VECTOR : SCALAR;
+        return current == VECTOR;
+    }
+
+    /**
+     * @return Whether the vectorized kernel is in use
+     */
+    public static boolean isVectorized() {
+        return current == VECTOR;
+    }
+
+    /**
+     * Loads the vectorized kernel by name, so this class links without the Vector API
+     * and without the kernel having been compiled.
+     */
+    private static LuminanceKernel loadVectorKernel() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return null;
+        }
+        try {
+            return (LuminanceKernel) Class.forName(VECTOR_KERNEL)
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package image;
+
+/**
+ * Luminance kernel processing one pixel at a time, available on every JVM.
+ * @author Tomer Kadosh
+ */
+final class ScalarLuminanceKernel implements LuminanceKernel {
+    @Override
+    public long sum(int[] pixels, int from, int to) {
+        long total = 0;
+        for (int i = from; i < to; i++) {
+            total += Luminance.of(pixels[i]);
+        }
+        return total;
+    }
+
+    @Override
+    public void luminance(int[] pixels, int from, int[] out, int outFrom, int length) {
+        for (int i = 0; i < length; i++) {
+            out[outFrom + i] = Luminance.of(pixels[from + i]);
+        }
+    }
+}
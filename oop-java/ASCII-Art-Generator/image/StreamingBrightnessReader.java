@@ -0,0 +1,143 @@
+package image;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Computes the block brightness grid of an image file without holding the whole
+ * image in memory.
+ * The file is decoded in horizontal strips through an {@link ImageReader} source region.
+ * Each strip's luminance is added to per-block sums and the strip is then reused for
+ * the next one, so peak memory is proportional to strip height times image width.
+ * Formats that can only decode sequentially re-scan the stream up to each strip,
+ * trading decode time for memory.
+ * @author Tomer Kadosh
+ * @see ImagePrepration#calculateBrightnessWithIntegral()
+ */
+public final class StreamingBrightnessReader {
+    /** Default number of image rows decoded at a time */
+    public static final int DEFAULT_STRIP_HEIGHT = 256;
+
+    private StreamingBrightnessReader() {
+    }
+
+    /**
+     * Reads an image file strip by strip and calculates its brightness grid.
+     * The result equals that of {@link ImagePrepration} for the same image and resolution.
+     *
+     * @param filename Path of the image file
+     * @param resolution Number of blocks per row
+     * @param stripHeight Number of image rows decoded at a time
+     * @return 2D array of brightness values for each block
+     * @throws IOException if the file cannot be read or its format is not supported
+     * @throws IllegalArgumentException if the resolution does not fit the image
+     */
+    public static double[][] readBrightness(String filename, int resolution, int stripHeight)
+            throws IOException {
+        return readBrightness(filename, resolution, stripHeight, false);
+    }
+
+    /**
+     * Reads an image file strip by strip and calculates its brightness grid, optionally
+     * decoding only as many pixels as the resolution needs, as
+     * {@link Image#readSubsampled(String, int)} does.
+     *
+     * @param filename Path of the image file
+     * @param resolution Number of blocks per row
+     * @param stripHeight Number of decoded rows held at a time
+     * @param subsample Whether to skip pixels the resolution does not need
+     * @return 2D array of brightness values for each block
+     * @throws IOException if the file cannot be read or its format is not supported
+     * @throws IllegalArgumentException if the resolution does not fit the image
+     */
+    public static double[][] readBrightness(String filename, int resolution, int stripHeight,
+                                            boolean subsample) throws IOException {
+        if (stripHeight < 1) {
+            throw new IllegalArgumentException("Strip height must be positive");
+        }
+        try (ImageInputStream input = ImageIO.createImageInputStream(new File(filename))) {
+            ImageReader reader = ImageReaders.open(input, filename);
+            try {
+                return readBrightness(reader, resolution, stripHeight, subsample);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Decodes the first image of a reader strip by strip, accumulating block sums.
+     */
+    private static double[][] readBrightness(ImageReader reader, int resolution, int stripHeight,
+                                             boolean subsample) throws IOException {
+        int sourceWidth = reader.getWidth(0);
+        int sourceHeight = reader.getHeight(0);
+        BlockGrid grid = new BlockGrid(sourceWidth, sourceHeight, resolution);
+        int factor = subsample ? grid.subsamplingFactor() : 1;
+        if (factor > 1) {
+            // The subsampled image divides into the same blocks, each factor times smaller
+            grid = new BlockGrid(ceilDiv(sourceWidth, factor), ceilDiv(sourceHeight, factor),
+                    resolution);
+        }
+        int width = ceilDiv(sourceWidth, factor);
+        int height = ceilDiv(sourceHeight, factor);
+        long[][] sums = new long[grid.getRows()][grid.getCols()];
+
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceSubsampling(factor, factor, 0, 0);
+        BufferedImage strip = null;
+        int[] rowPixels = new int[width];
+        for (int stripTop = 0; stripTop < height; stripTop += stripHeight) {
+            int stripRows = Math.min(stripHeight, height - stripTop);
+            int sourceTop = stripTop * factor;
+            int sourceRows = Math.min(stripRows * factor, sourceHeight - sourceTop);
+            param.setSourceRegion(new Rectangle(0, sourceTop, sourceWidth, sourceRows));
+            // Decode into the previous strip's buffer instead of allocating a new one
+            param.setDestination(strip);
+            strip = reader.read(0, param);
+
+            for (int row = 0; row < stripRows; row++) {
+                strip.getRGB(0, row, width, 1, rowPixels, 0, width);
+                addRow(grid, sums[grid.blockRowOf(stripTop + row)], rowPixels);
+            }
+        }
+
+        double[][] brightnessValues = new double[grid.getRows()][grid.getCols()];
+        for (int blockRow = 0; blockRow < grid.getRows(); blockRow++) {
+            for (int blockCol = 0; blockCol < grid.getCols(); blockCol++) {
+                brightnessValues[blockRow][blockCol] =
+                        grid.brightness(sums[blockRow][blockCol], blockRow, blockCol);
+            }
+        }
+        return brightnessValues;
+    }
+
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    /**
+     * Adds the luminance of one image row to the sums of the blocks it crosses.
+     *
+     * @param grid The block grid
+     * @param rowSums Sums of the block row containing the image row
+     * @param rowPixels The row's packed pixels
+     */
+    private static void addRow(BlockGrid grid, long[] rowSums, int[] rowPixels) {
+        int width = rowPixels.length;
+        LuminanceKernel kernel = LuminanceKernels.current();
+        for (int blockCol = 0; blockCol < grid.getCols(); blockCol++) {
+            int colStart = Math.max(grid.colStart(blockCol), 0);
+            int colEnd = Math.min(grid.colStart(blockCol) + grid.getBlockSize(), width);
+            if (colStart < colEnd) {
+                rowSums[blockCol] += kernel.sum(rowPixels, colStart, colEnd);
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package image;
+
+/**
+ * A rectangular view into a parent {@link Image}.
+ * The view only stores its offset and size; pixels are read from the parent's
+ * packed buffer, so splitting an image into blocks copies no pixel data.
+ * A view may extend past the parent image, as blocks over a padded image do;
+ * pixels outside the parent read as white.
+ * @author Tomer Kadosh
+ * @see ImagePrepration
+ */
+public class SubImage {
+    /** Color of the pixels outside the parent image */
+    private static final int PADDING_RGB = 0xFFFFFFFF;
+
+    /** The image this view reads from */
+    private final Image parent;
+    /** First row of the view in the parent image */
+    private final int top;
+    /** First column of the view in the parent image */
+    private final int left;
+    private final int width;
+    private final int height;
+
+    /**
+     * Creates a view over a region of the parent image. The region may extend past
+     * the parent's edges on any side.
+     *
+     * @param parent The image to view
+     * @param top First row of the region, negative to start above the image
+     * @param left First column of the region, negative to start left of the image
+     * @param width Width of the region in pixels
+     * @param height Height of the region in pixels
+     * @throws IllegalArgumentException if the region has a negative size
+     */
+    public SubImage(Image parent, int top, int left, int width, int height) {
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Region size must not be negative");
+        }
+        this.parent = parent;
+        this.top = top;
+        this.left = left;
+        this.width = width;
+        this.height = height;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns a pixel of the view as a packed ARGB int.
+     *
+     * @param x Row of the pixel within the view
+     * @param y Column of the pixel within the view
+     * @return The packed ARGB value, white outside the parent image
+     */
+    public int getRGB(int x, int y) {
+        int row = top + x;
+        int col = left + y;
+        if (row < 0 || col < 0 || row >= parent.getHeight() || col >= parent.getWidth()) {
+            return PADDING_RGB;
+        }
+        return parent.getRGB(row, col);
+    }
+
+    /**
+     * @return The first view row inside the parent image
+     */
+    int firstCoveredRow() {
+        return Math.max(-top, 0);
+    }
+
+    /**
+     * @return The view row after the last one inside the parent image, at most the height
+     */
+    int endCoveredRow() {
+        return Math.max(Math.min(parent.getHeight() - top, height), firstCoveredRow());
+    }
+
+    /**
+     * @return The first view column inside the parent image
+     */
+    int firstCoveredCol() {
+        return Math.max(-left, 0);
+    }
+
+    /**
+     * @return The view column after the last one inside the parent image, at most the width
+     */
+    int endCoveredCol() {
+        return Math.max(Math.min(parent.getWidth() - left, width), firstCoveredCol());
+    }
+
+    /**
+     * Calculates how many pixels of the view lie inside the parent image; the rest
+     * are padding.
+     *
+     * @return Number of covered pixels
+     */
+    long coveredArea() {
+        return (long) (endCoveredRow() - firstCoveredRow()) * (endCoveredCol() - firstCoveredCol());
+    }
+
+    /**
+     * Returns the parent's packed pixel buffer, for iterating the view row by row
+     * together with {@link #rowOffset(int)}.
+     *
+     * @return The parent's pixels
+     */
+    int[] pixels() {
+        return parent.getPixels();
+    }
+
+    /**
+     * Returns the index the first pixel of a view row would have in the parent's buffer.
+     * Only the columns between {@link #firstCoveredCol()} and {@link #endCoveredCol()}
+     * of covered rows are inside the buffer.
+     *
+     * @param x Row within the view
+     * @return Index into {@link #pixels()} of view column 0
+     */
+    int rowOffset(int x) {
+        return (top + x) * parent.getWidth() + left;
+    }
+}
@@ -1,6 +1,6 @@
 package image_char_matching;
 
-import java.util.Map;
+import java.util.BitSet;
 
 /**
  * Implements a rounding strategy that finds the absolute closest character brightness value.
@@ -15,37 +15,72 @@ public class AbsRound implements RoundingMethod {
      * Finds the character with the closest brightness value using absolute difference.
      *
      * @param value The target brightness value to match
-     * @param char_map Map containing characters and their corresponding brightness values
+     * @param brightness Brightness value of each character, indexed by character
+     * @param chars Characters to choose from
      * @return The character with the closest brightness value by absolute difference
      */
     @Override
-    public char round(double value, Map<Character, Double> char_map) {
+    public char round(double value, double[] brightness, BitSet chars) {
         // Initialize tracking variables for closest match
         double closestBrightness = 0;
         char closestChar = 0;
         boolean firstLoop = true;
 
         // Iterate through each character and its brightness value
-        for (Map.Entry<Character, Double> entry : char_map.entrySet()) {
+        for (int c = chars.nextSetBit(0); c >= 0; c = chars.nextSetBit(c + 1)) {
             // Calculate absolute distance from target value to current brightness
-            double distance = Math.abs(entry.getValue() - value);
+            double distance = Math.abs(brightness[c] - value);
 
             // For first iteration, set initial closest values
             if (firstLoop){
                 closestBrightness = distance;
-                closestChar = entry.getKey();
+                closestChar = (char) c;
                 firstLoop = false;
             }
             // Update closest match if current distance is smaller
             else if (distance < closestBrightness){
                 closestBrightness = distance;
-                closestChar = entry.getKey();
+                closestChar = (char) c;
             }
             // If distances are equal, prefer the character with higher ASCII value
-            else if (distance == closestBrightness && entry.getKey() > closestChar){
-                closestChar = entry.getKey();
+            else if (distance == closestBrightness && c > closestChar){
+                closestChar = (char) c;
             }
         }
         return closestChar;
     }
+
+    /**
+     * Finds the character with the closest brightness value using binary search.
+     * Only the two brightness values surrounding the target can be closest, and the
+     * highest character of each is the last one of its group.
+     *
+     * @param value The target brightness value to match
+     * @param sorted The character set sorted by brightness
+     * @return The character with the closest brightness value by absolute difference
+     */
+    @Override
+    public char round(double value, SortedCharBrightness sorted) {
+        int above = sorted.ceilingIndex(value);
+        if (above == sorted.size()) {
+            return sorted.charAt(above - 1);
+        }
+        char aboveChar = sorted.charAt(sorted.lastOfGroup(above));
+        if (above == 0) {
+            return aboveChar;
+        }
+
+        // The position just below is already the last (highest) of its group
+        char belowChar = sorted.charAt(above - 1);
+        double aboveDistance = sorted.brightnessAt(above) - value;
+        double belowDistance = value - sorted.brightnessAt(above - 1);
+        if (belowDistance < aboveDistance) {
+            return belowChar;
+        }
+        if (aboveDistance < belowDistance) {
+            return aboveChar;
+        }
+        // If distances are equal, prefer the character with higher ASCII value
+        return (char) Math.max(aboveChar, belowChar);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,139 @@
+package image_char_matching;
+
+import java.util.Arrays;
+
+/**
+ * Maps rows of block brightness to characters with dithering, so flat regions mix
+ * neighbouring characters instead of repeating one.
+ * Floyd-Steinberg dithering propagates each block's quantization error, its
+ * brightness minus the matched character's brightness, to the blocks right of and
+ * below it; only the error rows of the current and the next row are kept. Bayer
+ * dithering offsets each block by a fixed 4x4 threshold pattern and keeps no state.
+ * Rows must be fed top to bottom, so a ditherer can map a grid while it is still
+ * being computed. A ditherer is not thread-safe; the lookup table may be shared.
+ * @author Tomer Kadosh
+ * @see BrightnessLookupTable
+ */
+public final class BrightnessDitherer {
+    /** Maps every block independently */
+    public static final String NONE = "none";
+    /** Floyd-Steinberg error diffusion */
+    public static final String FLOYD_STEINBERG = "floyd";
+    /** Ordered dithering with a 4x4 Bayer matrix */
+    public static final String BAYER = "bayer";
+
+    /** Floyd-Steinberg share of the error passed to the right */
+    private static final double RIGHT_WEIGHT = 7 / 16.0;
+    /** Floyd-Steinberg share of the error passed below and to the left */
+    private static final double BELOW_LEFT_WEIGHT = 3 / 16.0;
+    /** Floyd-Steinberg share of the error passed below */
+    private static final double BELOW_WEIGHT = 5 / 16.0;
+    /** Floyd-Steinberg share of the error passed below and to the right */
+    private static final double BELOW_RIGHT_WEIGHT = 1 / 16.0;
+    private static final int[][] BAYER_MATRIX = {
+            {0, 8, 2, 10},
+            {12, 4, 14, 6},
+            {3, 11, 1, 9},
+            {15, 7, 13, 5}
+    };
+    private static final int BAYER_SIZE = BAYER_MATRIX.length;
+    private static final int BAYER_LEVELS = BAYER_SIZE * BAYER_SIZE;
+
+    private final BrightnessLookupTable lookupTable;
+    private final String mode;
+    private final int cols;
+    /** Average brightness gap between neighbouring characters, scales the Bayer offsets */
+    private final double bayerStep;
+    /** Error carried into the current row, with one slot of margin on each side */
+    private double[] currentErrors;
+    /** Error carried into the next row, with one slot of margin on each side */
+    private double[] nextErrors;
+    /** Index of the next row to map */
+    private int row;
+
+    /**
+     * Creates a ditherer for rows of a given width.
+     *
+     * @param lookupTable Lookup table of the charset and rounding method to use
+     * @param mode {@link #NONE}, {@link #FLOYD_STEINBERG} or {@link #BAYER}
+     * @param cols Number of blocks per row
+     * @throws IllegalArgumentException if the mode is unknown
+     */
+    public BrightnessDitherer(BrightnessLookupTable lookupTable, String mode, int cols) {
+        if (!isMode(mode)) {
+            throw new IllegalArgumentException("Unknown dithering mode: " + mode);
+        }
+        this.lookupTable = lookupTable;
+        this.mode = mode;
+        this.cols = cols;
+        SortedCharBrightness sorted = lookupTable.getSortedBrightness();
+        this.bayerStep = sorted.size() < 2 ? 0 : (sorted.brightnessAt(sorted.size() - 1) -
+                sorted.brightnessAt(0)) / (sorted.size() - 1);
+        if (mode.equals(FLOYD_STEINBERG)) {
+            this.currentErrors = new double[cols + 2];
+            this.nextErrors = new double[cols + 2];
+        }
+    }
+
+    /**
+     * @param mode A mode name
+     * @return Whether it names a dithering mode
+     */
+    public static boolean isMode(String mode) {
+        return mode.equals(NONE) || mode.equals(FLOYD_STEINBERG) || mode.equals(BAYER);
+    }
+
+    /**
+     * Maps the next row of the grid to characters.
+     *
+     * @param brightness Brightness of the row's blocks
+     * @param chars Array receiving the row's characters
+     */
+    public void mapRow(double[] brightness, char[] chars) {
+        switch (mode) {
+            case FLOYD_STEINBERG -> diffuseRow(brightness, chars);
+            case BAYER -> orderRow(brightness, chars);
+            default -> {
+                for (int col = 0; col < cols; col++) {
+                    chars[col] = lookupTable.charFor(brightness[col]);
+                }
+            }
+        }
+        row++;
+    }
+
+    /**
+     * Maps a row with Floyd-Steinberg error diffusion.
+     */
+    private void diffuseRow(double[] brightness, char[] chars) {
+        for (int col = 0; col < cols; col++) {
+            double value = brightness[col] + currentErrors[col + 1];
+            char c = lookupTable.charFor(Math.max(0, Math.min(value, 1)));
+            chars[col] = c;
+            double error = value - lookupTable.brightnessOf(c);
+            currentErrors[col + 2] += error * RIGHT_WEIGHT;
+            nextErrors[col] += error * BELOW_LEFT_WEIGHT;
+            nextErrors[col + 1] += error * BELOW_WEIGHT;
+            nextErrors[col + 2] += error * BELOW_RIGHT_WEIGHT;
+        }
+
+        // The next row's errors become current; reuse the old row for the one after
+        double[] finished = currentErrors;
+        currentErrors = nextErrors;
+        nextErrors = finished;
+        Arrays.fill(nextErrors, 0);
+    }
+
+    /**
+     * Maps a row with ordered Bayer dithering.
+     */
+    private void orderRow(double[] brightness, char[] chars) {
+        int[] thresholds = BAYER_MATRIX[row % BAYER_SIZE];
+        for (int col = 0; col < cols; col++) {
+            // Offset in (-0.5, 0.5) steps, centered so flat regions keep their mean
+            double offset = (thresholds[col % BAYER_SIZE] + 0.5) / BAYER_LEVELS - 0.5;
+            double value = brightness[col] + offset * bayerStep;
+            chars[col] = lookupTable.charFor(Math.max(0, Math.min(value, 1)));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package image_char_matching;
+
+/**
+ * An immutable brightness-to-character lookup table for one character set and
+ * rounding method.
+ * The range [0,1] is quantized into {@link #BUCKETS} equal buckets. A bucket whose
+ * both edges round to the same character maps to it directly; only buckets that
+ * contain a rounding boundary fall back to the exact binary search. This relies on
+ * the rounding method mapping brightness monotonically, as abs, up and down do.
+ * @author Tomer Kadosh
+ * @see SubImgCharMatcher#getLookupTable()
+ */
+public final class BrightnessLookupTable {
+    /** Number of buckets, a power of two so bucket edges are exact doubles */
+    public static final int BUCKETS = 4096;
+    /** Marks a bucket that contains a rounding boundary */
+    private static final char BOUNDARY = '\uffff';
+
+    /** The character set sorted by brightness */
+    private final SortedCharBrightness sorted;
+    /** The rounding method the table was built for */
+    private final RoundingMethod roundingMethod;
+    /** Character of each bucket, or {@link #BOUNDARY} */
+    private final char[] buckets;
+    /** Normalized brightness of every char value up to the largest in the set */
+    private final double[] charBrightness;
+
+    /**
+     * Builds the table by rounding every bucket edge once.
+     *
+     * @param sorted The character set sorted by brightness, must not be empty
+     * @param roundingMethod The rounding method to apply
+     */
+    public BrightnessLookupTable(SortedCharBrightness sorted, RoundingMethod roundingMethod) {
+        this.sorted = sorted;
+        this.roundingMethod = roundingMethod;
+        this.buckets = new char[BUCKETS];
+
+        char lowerEdge = roundingMethod.round(0, sorted);
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            char upperEdge = roundingMethod.round((double) (bucket + 1) / BUCKETS, sorted);
+            buckets[bucket] = lowerEdge == upperEdge ? lowerEdge : BOUNDARY;
+            lowerEdge = upperEdge;
+        }
+
+        char largest = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            largest = (char) Math.max(largest, sorted.charAt(i));
+        }
+        this.charBrightness = new double[largest + 1];
+        for (int i = 0; i < sorted.size(); i++) {
+            charBrightness[sorted.charAt(i)] = sorted.brightnessAt(i);
+        }
+    }
+
+    /**
+     * Returns the character that best matches the given brightness value.
+     *
+     * @param brightness The brightness value to match
+     * @return The matching character
+     */
+    public char charFor(double brightness) {
+        if (brightness >= 0 && brightness < 1) {
+            char c = buckets[(int) (brightness * BUCKETS)];
+            if (c != BOUNDARY) {
+                return c;
+            }
+        }
+        return roundingMethod.round(brightness, sorted);
+    }
+
+    /**
+     * Returns the normalized brightness of a character of the set, such as one
+     * returned by {@link #charFor(double)}.
+     *
+     * @param c A character of the set
+     * @return Its normalized brightness
+     */
+    public double brightnessOf(char c) {
+        return charBrightness[c];
+    }
+
+    /**
+     * @return The sorted character set this table was built from
+     */
+    public SortedCharBrightness getSortedBrightness() {
+        return sorted;
+    }
+}
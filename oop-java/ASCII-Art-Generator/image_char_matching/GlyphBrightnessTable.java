@@ -0,0 +1,152 @@
+package image_char_matching;
+
+import java.awt.Font;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Raw glyph brightness values, read from a precomputed resource when possible.
+ * The resource {@value #RESOURCE_NAME} holds the brightness of the printable ASCII
+ * range rendered in the converter's font at {@link CharConverter#DEFAULT_PIXEL_RESOLUTION}.
+ * Characters missing from it, or a resource produced for a different font or resolution,
+ * fall back to rendering through {@link CharConverter}, so AWT and the font subsystem
+ * are only initialized when a glyph is not in the table. Rendered values are cached.
+ * @author Tomer Kadosh
+ */
+public final class GlyphBrightnessTable {
+    /** Name of the precomputed resource, next to this class */
+    public static final String RESOURCE_NAME = "glyph_brightness.properties";
+    /** First character stored in the table */
+    public static final char FIRST_CHAR = 32;
+    /** Last character stored in the table */
+    public static final char LAST_CHAR = 125;
+
+    private static final String FONT_KEY = "font";
+    private static final String RESOLUTION_KEY = "resolution";
+    /** Marks a character whose brightness is not known yet */
+    private static final double UNKNOWN = -1;
+
+    /** Brightness of every char value up to {@link #LAST_CHAR}, or {@link #UNKNOWN} */
+    private static final double[] TABLE = loadTable();
+
+    private GlyphBrightnessTable() {
+    }
+
+    /**
+     * Returns the raw brightness of a character: the ratio of white pixels to
+     * total pixels of its rendered glyph.
+     *
+     * @param c The character
+     * @return The raw brightness value
+     */
+    public static double getRawBrightness(char c) {
+        if (c >= TABLE.length) {
+            return renderBrightness(c);
+        }
+        double brightness = TABLE[c];
+        if (brightness == UNKNOWN) {
+            // Racing threads render the same value, so no locking is needed
+            brightness = renderBrightness(c);
+            TABLE[c] = brightness;
+        }
+        return brightness;
+    }
+
+    /**
+     * Tells whether a character's brightness is known without rendering its glyph.
+     *
+     * @param c The character
+     * @return Whether {@link #getRawBrightness(char)} is a table lookup for it
+     */
+    static boolean isKnown(char c) {
+        return c < TABLE.length && TABLE[c] != UNKNOWN;
+    }
+
+    /**
+     * Renders a character and calculates its brightness.
+     *
+     * @param c The character to render
+     * @return The brightness value as a ratio of white pixels to total pixels
+     */
+    static double renderBrightness(char c) {
+        boolean[][] boolArray = CharConverter.convertToBoolArray(c);
+        int arraySize = boolArray.length * boolArray[0].length;
+        int whiteCell = 0;
+        for (boolean[] row : boolArray) {
+            for (boolean white : row) {
+                if (white) {
+                    whiteCell++;
+                }
+            }
+        }
+        return (double) whiteCell / (double) arraySize;
+    }
+
+    /**
+     * Loads the precomputed resource, ignoring it if it is missing or was produced
+     * for another font or resolution.
+     *
+     * @return The table, with unknown entries for everything not loaded
+     */
+    private static double[] loadTable() {
+        double[] table = new double[LAST_CHAR + 1];
+        Arrays.fill(table, UNKNOWN);
+        try (InputStream in = GlyphBrightnessTable.class.getResourceAsStream(RESOURCE_NAME)) {
+            if (in == null) {
+                return table;
+            }
+            Properties properties = new Properties();
+            properties.load(in);
+            if (!CharConverter.FONT_NAME.equals(properties.getProperty(FONT_KEY)) ||
+                    !String.valueOf(CharConverter.DEFAULT_PIXEL_RESOLUTION).equals(
+                            properties.getProperty(RESOLUTION_KEY))) {
+                return table;
+            }
+            for (char c = FIRST_CHAR; c <= LAST_CHAR; c++) {
+                String value = properties.getProperty(Integer.toString(c));
+                if (value != null) {
+                    table[c] = Double.parseDouble(value);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            Arrays.fill(table, UNKNOWN);
+        }
+        return table;
+    }
+
+    /**
+     * Generates the precomputed resource by rendering the printable ASCII range.
+     * Must run on a machine that has the converter's font installed; otherwise AWT
+     * would substitute another font and the table would be wrong, so it refuses.
+     *
+     * @param args Path of the resource file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: GlyphBrightnessTable <output file>");
+            return;
+        }
+        Font font = new Font(CharConverter.FONT_NAME, Font.PLAIN,
+                CharConverter.DEFAULT_PIXEL_RESOLUTION);
+        if (!font.getFamily().equals(CharConverter.FONT_NAME)) {
+            System.err.println("Error: font " + CharConverter.FONT_NAME + " is not installed");
+            return;
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty(FONT_KEY, CharConverter.FONT_NAME);
+        properties.setProperty(RESOLUTION_KEY,
+                String.valueOf(CharConverter.DEFAULT_PIXEL_RESOLUTION));
+        for (char c = FIRST_CHAR; c <= LAST_CHAR; c++) {
+            properties.setProperty(Integer.toString(c), Double.toString(renderBrightness(c)));
+        }
+        try (OutputStream out = new FileOutputStream(args[0])) {
+            properties.store(out, "Raw glyph brightness, generated by GlyphBrightnessTable");
+        }
+    }
+}
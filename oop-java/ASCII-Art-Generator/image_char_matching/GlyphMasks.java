@@ -0,0 +1,112 @@
+package image_char_matching;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Glyph bitmaps of a character set packed into bit masks, for matching image blocks
+ * by shape instead of by brightness alone.
+ * Each glyph is rendered by {@link CharConverter} and packed row-major into
+ * {@link #WORDS} longs, with a bit set for every white pixel. The distance between a
+ * block and a glyph is the number of differing bits, counted with XOR and
+ * {@link Long#bitCount(long)}, so matching a block costs a few instructions per glyph.
+ * Rendered masks are cached per character; instances are immutable and may be
+ * shared between threads.
+ * @author Tomer Kadosh
+ * @see SubImgCharMatcher#getGlyphMasks()
+ */
+public final class GlyphMasks {
+    /** Cells per mask side, the glyph rendering resolution */
+    public static final int MASK_SIZE = CharConverter.DEFAULT_PIXEL_RESOLUTION;
+    /** Longs per packed mask */
+    public static final int WORDS = MASK_SIZE * MASK_SIZE / Long.SIZE;
+
+    /**
+     * Packed mask of every rendered char value up to the last supported one. The
+     * atomic array publishes each mask with its contents to every thread reading it.
+     */
+    private static final AtomicReferenceArray<long[]> RENDERED =
+            new AtomicReferenceArray<>(GlyphBrightnessTable.LAST_CHAR + 1);
+
+    /** The characters, sorted */
+    private final char[] chars;
+    /** Masks of the characters in the same order, {@link #WORDS} per character */
+    private final long[] masks;
+
+    /**
+     * Packs the glyphs of a character set.
+     *
+     * @param charset The characters, must not be empty
+     */
+    public GlyphMasks(char[] charset) {
+        this.chars = charset.clone();
+        Arrays.sort(chars);
+        this.masks = new long[chars.length * WORDS];
+        for (int i = 0; i < chars.length; i++) {
+            System.arraycopy(maskOf(chars[i]), 0, masks, i * WORDS, WORDS);
+        }
+    }
+
+    /**
+     * Finds the character whose glyph differs from a block mask in the fewest cells.
+     * Ties go to the character with the lowest value.
+     *
+     * @param blockWords Array holding the packed block mask
+     * @param offset Index of the block's first word
+     * @return The closest character
+     */
+    public char closest(long[] blockWords, int offset) {
+        int best = 0;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int glyph = 0, base = 0; glyph < chars.length; glyph++, base += WORDS) {
+            int distance = 0;
+            for (int word = 0; word < WORDS; word++) {
+                distance += Long.bitCount(masks[base + word] ^ blockWords[offset + word]);
+            }
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = glyph;
+            }
+        }
+        return chars[best];
+    }
+
+    /**
+     * Returns the packed mask of a character, rendering it on first use.
+     *
+     * @param c The character
+     * @return The packed mask, must not be modified
+     */
+    static long[] maskOf(char c) {
+        if (c >= RENDERED.length()) {
+            return pack(CharConverter.convertToBoolArray(c));
+        }
+        long[] mask = RENDERED.get(c);
+        if (mask == null) {
+            // Racing threads render equal masks and either may win; the volatile write
+            // makes the filled array visible before its reference
+            mask = pack(CharConverter.convertToBoolArray(c));
+            RENDERED.set(c, mask);
+        }
+        return mask;
+    }
+
+    /**
+     * Packs a square glyph bitmap row-major into longs.
+     *
+     * @param matrix The bitmap, true for white pixels
+     * @return The packed mask
+     */
+    static long[] pack(boolean[][] matrix) {
+        long[] mask = new long[WORDS];
+        for (int row = 0; row < MASK_SIZE; row++) {
+            for (int col = 0; col < MASK_SIZE; col++) {
+                if (matrix[row][col]) {
+                    int cell = row * MASK_SIZE + col;
+                    mask[cell >>> 6] |= 1L << (cell & (Long.SIZE - 1));
+                }
+            }
+        }
+        return mask;
+    }
+}
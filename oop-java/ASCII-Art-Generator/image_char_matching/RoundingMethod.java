@@ -1,19 +1,31 @@
 package image_char_matching;
 
-import java.util.Map;
+import java.util.BitSet;
 
 /**
  * Interface for rounding methods used in character matching.
  * This interface defines a method for rounding a brightness value
- * to the nearest character based on a provided mapping.
+ * to the nearest character based on a provided mapping. Mappings are dense arrays
+ * indexed by character value, with a bitset marking the characters that take part.
  * @author Tomer Kadosh
  */
 public interface RoundingMethod {
     /**
      * Rounds a given brightness value to the nearest character based on the provided mapping.
      * @param value The brightness value to round
-     * @param char_map The mapping of characters to their corresponding brightness values
+     * @param brightness Brightness value of each character, indexed by character
+     * @param chars Characters of the mapping, must not be empty
      * @return The character that best matches the given brightness value
      */
-    char round(double value, Map<Character, Double> char_map);
+    char round(double value, double[] brightness, BitSet chars);
+
+    /**
+     * Rounds a given brightness value to the nearest character using a sorted snapshot
+     * of the character set. Must pick the same character as
+     * {@link #round(double, double[], BitSet)} would for the same mapping.
+     * @param value The brightness value to round
+     * @param sorted The character set sorted by brightness, must not be empty
+     * @return The character that best matches the given brightness value
+     */
+    char round(double value, SortedCharBrightness sorted);
 }
\ No newline at end of file
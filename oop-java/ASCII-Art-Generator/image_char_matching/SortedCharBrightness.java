@@ -0,0 +1,131 @@
+package image_char_matching;
+
+import java.util.BitSet;
+
+/**
+ * An immutable snapshot of a character set sorted by normalized brightness.
+ * Characters with equal brightness are ordered by ascending character value, so
+ * rounding methods can resolve a brightness and apply their tie-break rules with
+ * a binary search over primitive arrays instead of scanning a map.
+ * @author Tomer Kadosh
+ * @see RoundingMethod
+ */
+public final class SortedCharBrightness {
+    /** Normalized brightness values in ascending order */
+    private final double[] brightness;
+    /** Characters matching {@link #brightness} index by index */
+    private final char[] chars;
+
+    /**
+     * Creates a sorted snapshot of a character-to-brightness mapping.
+     *
+     * @param charBrightness Normalized brightness value of each character, indexed by character
+     * @param charset Characters of the mapping
+     */
+    public SortedCharBrightness(double[] charBrightness, BitSet charset) {
+        int size = charset.cardinality();
+        this.brightness = new double[size];
+        this.chars = new char[size];
+
+        // Insertion sort by (brightness, char); character sets are small
+        int count = 0;
+        for (int next = charset.nextSetBit(0); next >= 0; next = charset.nextSetBit(next + 1)) {
+            double value = charBrightness[next];
+            char c = (char) next;
+            int position = count++;
+            while (position > 0 && (brightness[position - 1] > value ||
+                    (brightness[position - 1] == value && chars[position - 1] > c))) {
+                brightness[position] = brightness[position - 1];
+                chars[position] = chars[position - 1];
+                position--;
+            }
+            brightness[position] = value;
+            chars[position] = c;
+        }
+    }
+
+    /**
+     * @return Number of characters in the snapshot
+     */
+    public int size() {
+        return chars.length;
+    }
+
+    /**
+     * @param index Position in brightness order
+     * @return The character at that position
+     */
+    public char charAt(int index) {
+        return chars[index];
+    }
+
+    /**
+     * @param index Position in brightness order
+     * @return The normalized brightness at that position
+     */
+    public double brightnessAt(int index) {
+        return brightness[index];
+    }
+
+    /**
+     * Finds the first position whose brightness is greater than or equal to the value.
+     *
+     * @param value Brightness to search for
+     * @return The position, or {@link #size()} if all values are smaller
+     */
+    public int ceilingIndex(double value) {
+        int low = 0;
+        int high = brightness.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (brightness[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the last position whose brightness is less than or equal to the value.
+     *
+     * @param value Brightness to search for
+     * @return The position, or -1 if all values are greater
+     */
+    public int floorIndex(double value) {
+        int low = 0;
+        int high = brightness.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (brightness[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * Finds the last position sharing the brightness of the given position,
+     * which holds the highest character of that brightness.
+     *
+     * @param index A position in brightness order
+     * @return The last position with the same brightness
+     */
+    public int lastOfGroup(int index) {
+        return floorIndex(brightness[index]);
+    }
+
+    /**
+     * Finds the first position sharing the brightness of the given position,
+     * which holds the lowest character of that brightness.
+     *
+     * @param index A position in brightness order
+     * @return The first position with the same brightness
+     */
+    public int firstOfGroup(int index) {
+        return ceilingIndex(brightness[index]);
+    }
+}
@@ -1,18 +1,41 @@
 package image_char_matching;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 /**
  * Matches characters to image brightness values for ASCII art generation.
  * This class handles the mapping between ASCII characters and their corresponding brightness values,
  * maintaining both raw and normalized brightness mappings.
+ * Brightness values are stored in dense arrays indexed by character value, with a
+ * bitset marking the characters of the set, so lookups neither box nor hash.
  * @author Tomer Kadosh
  */
 public class SubImgCharMatcher {
-    /** Map storing normalized brightness values for each character */
-    private final Map<Character, Double> brightnessMap;
-    /** Map storing raw (non-normalized) brightness values for each character */
-    private final Map<Character, Double> rawBrightnessMap;
+    /** Name of the absolute rounding method */
+    public static final String ABS = "abs";
+    /** Name of the round-up method */
+    public static final String UP = "up";
+    /** Name of the round-down method */
+    public static final String DOWN = "down";
+    /** Characters must be below this value, the size of the brightness arrays */
+    public static final int CHAR_LIMIT = 128;
+    /** Number of glyphs to render from which bulk additions render them in parallel */
+    private static final int PARALLEL_GLYPH_THRESHOLD = 16;
+
+    /** Normalized brightness of each character of the set, indexed by character */
+    private final double[] brightness = new double[CHAR_LIMIT];
+    /** Raw (non-normalized) brightness of each character of the set, indexed by character */
+    private final double[] rawBrightness = new double[CHAR_LIMIT];
+    /** Characters of the set */
+    private final BitSet inCharset = new BitSet(CHAR_LIMIT);
+    /** Read-only map view of {@link #brightness} over the set */
+    private final Map<Character, Double> brightnessView = new BrightnessView();
 
     /** Minimum brightness value in the current character set */
     private double minBrightness = Double.MAX_VALUE;
@@ -20,20 +43,23 @@ public class SubImgCharMatcher {
     private double maxBrightness = Double.MIN_VALUE;
     /** Method used for rounding brightness values to match characters */
     private RoundingMethod roundingMethod = new AbsRound();
+    /** Name of the current rounding method */
+    private String roundingMethodName = ABS;
+    /** Incremented whenever a character is added or removed */
+    private long charsetVersion = 0;
+    /** Lookup table for the current charset and rounding method, rebuilt lazily after changes */
+    private BrightnessLookupTable lookupTable;
+    /** Glyph masks of the current charset, rebuilt lazily after changes */
+    private GlyphMasks glyphMasks;
 
     /**
      * Constructs a new SubImgCharMatcher with the given character set.
      * Initializes brightness maps and calculates brightness values for all characters.
      * @param charset Array of characters to use for ASCII art
+     * @throws IllegalArgumentException if a character is not below {@link #CHAR_LIMIT}
      */
     public SubImgCharMatcher(char[] charset){
-        this.brightnessMap = new HashMap<>();
-        this.rawBrightnessMap = new HashMap<>();
-        for (char c : charset) {
-            brightnessMap.put(c, null);
-            rawBrightnessMap.put(c, null);
-        }
-        setBrightnessMap();
+        addChars(charset);
     }
 
     /**
@@ -42,44 +68,197 @@ public class SubImgCharMatcher {
      * @return The character with the closest brightness value
      */
     public char getCharByImageBrightness(double brightness){
-        return roundingMethod.round(brightness, brightnessMap);
+        return getLookupTable().charFor(brightness);
+    }
+
+    /**
+     * Returns the immutable lookup table for the current charset and rounding method,
+     * building it if the charset or rounding method changed since the last call.
+     * Callers mapping many values should fetch the table once and use it directly.
+     * @return The current brightness lookup table
+     */
+    public BrightnessLookupTable getLookupTable() {
+        if (lookupTable == null) {
+            lookupTable = new BrightnessLookupTable(
+                    new SortedCharBrightness(brightness, inCharset), roundingMethod);
+        }
+        return lookupTable;
+    }
+
+    /**
+     * Returns the packed glyph masks of the current charset, for matching by shape,
+     * building them if the charset changed since the last call.
+     * @return The current glyph masks
+     */
+    public GlyphMasks getGlyphMasks() {
+        if (glyphMasks == null) {
+            char[] chars = new char[inCharset.cardinality()];
+            int i = 0;
+            for (int c = inCharset.nextSetBit(0); c >= 0; c = inCharset.nextSetBit(c + 1)) {
+                chars[i++] = (char) c;
+            }
+            glyphMasks = new GlyphMasks(chars);
+        }
+        return glyphMasks;
     }
 
     /**
      * Adds a new character to the brightness maps.
      * Recalculates normalization if the character's brightness extends the current range.
      * @param c The character to add
+     * @throws IllegalArgumentException if the character is not below {@link #CHAR_LIMIT}
      */
     public void addChar(char c){
-        if(brightnessMap.containsKey(c)) {
+        checkChar(c);
+        if(inCharset.get(c)) {
             return;
         }
 
-        double rawBrightness = setBrightnessForChar(c);
-        rawBrightnessMap.put(c, rawBrightness);
-        double normalized = normalizeBrightness(rawBrightness);
-        brightnessMap.put(c, normalized);
+        lookupTable = null;
+        glyphMasks = null;
+        charsetVersion++;
+        double raw = setBrightnessForChar(c);
+        rawBrightness[c] = raw;
+        brightness[c] = normalizeBrightness(raw);
+        inCharset.set(c);
 
-        if (rawBrightness <= maxBrightness && rawBrightness >= minBrightness) {
+        if (raw <= maxBrightness && raw >= minBrightness) {
             return;
         }
         resetMap();
     }
 
+    /**
+     * Adds several characters to the brightness maps and renormalizes once, so adding
+     * n characters costs O(n + size) instead of a full renormalization per character.
+     * Glyphs missing from the precomputed table are rendered in parallel when there
+     * are enough of them. Characters already in the set are ignored.
+     * @param chars The characters to add
+     * @throws IllegalArgumentException if a character is not below {@link #CHAR_LIMIT}
+     */
+    public void addChars(char[] chars) {
+        for (char c : chars) {
+            checkChar(c);
+        }
+
+        // Collect the characters that are actually new, without duplicates
+        char[] added = new char[chars.length];
+        int count = 0;
+        int unknown = 0;
+        BitSet seen = new BitSet(CHAR_LIMIT);
+        for (char c : chars) {
+            if (!inCharset.get(c) && !seen.get(c)) {
+                seen.set(c);
+                added[count++] = c;
+                if (!GlyphBrightnessTable.isKnown(c)) {
+                    unknown++;
+                }
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+
+        double[] raw = new double[count];
+        IntStream indices = IntStream.range(0, count);
+        if (unknown >= PARALLEL_GLYPH_THRESHOLD) {
+            indices = indices.parallel();
+        }
+        indices.forEach(i -> raw[i] = setBrightnessForChar(added[i]));
+        for (int i = 0; i < count; i++) {
+            rawBrightness[added[i]] = raw[i];
+        }
+        inCharset.or(seen);
+
+        lookupTable = null;
+        glyphMasks = null;
+        charsetVersion++;
+        resetMap();
+    }
+
+    /**
+     * Adds an inclusive range of characters and renormalizes once.
+     * @param first The first character of the range
+     * @param last The last character of the range
+     * @throws IllegalArgumentException if a character is not below {@link #CHAR_LIMIT}
+     */
+    public void addChars(char first, char last) {
+        addChars(charRange(first, last));
+    }
+
     /**
      * Removes a character from the brightness maps and recalculates normalization.
      * @param c The character to remove
      */
     public void removeChar(char c){
-        if(!brightnessMap.containsKey(c)) {
+        if(c >= CHAR_LIMIT || !inCharset.get(c)) {
+            return;
+        }
+        inCharset.clear(c);
+        lookupTable = null;
+        glyphMasks = null;
+        charsetVersion++;
+
+        resetMap();
+    }
+
+    /**
+     * Removes several characters from the brightness maps and renormalizes once.
+     * Characters not in the set are ignored.
+     * @param chars The characters to remove
+     */
+    public void removeChars(char[] chars) {
+        boolean removed = false;
+        for (char c : chars) {
+            if (c < CHAR_LIMIT && inCharset.get(c)) {
+                inCharset.clear(c);
+                removed = true;
+            }
+        }
+        if (!removed) {
             return;
         }
-        brightnessMap.remove(c);
-        rawBrightnessMap.remove(c);
 
+        lookupTable = null;
+        glyphMasks = null;
+        charsetVersion++;
         resetMap();
     }
 
+    /**
+     * Removes an inclusive range of characters and renormalizes once.
+     * @param first The first character of the range
+     * @param last The last character of the range
+     */
+    public void removeChars(char first, char last) {
+        removeChars(charRange(first, last));
+    }
+
+    /**
+     * Lists the characters of an inclusive range.
+     * @param first The first character of the range
+     * @param last The last character of the range
+     * @return The characters from first to last, empty if first is after last
+     */
+    private static char[] charRange(char first, char last) {
+        char[] range = new char[Math.max(0, last - first + 1)];
+        for (int i = 0; i < range.length; i++) {
+            range[i] = (char) (first + i);
+        }
+        return range;
+    }
+
+    /**
+     * Checks that a character fits the brightness arrays.
+     * @param c The character
+     * @throws IllegalArgumentException if the character is not below {@link #CHAR_LIMIT}
+     */
+    private static void checkChar(char c) {
+        if (c >= CHAR_LIMIT) {
+            throw new IllegalArgumentException("Character out of range: " + (int) c);
+        }
+    }
+
     /**
      * Resets the brightness maps by recalculating min/max values and renormalizing all values.
      */
@@ -87,54 +266,25 @@ public class SubImgCharMatcher {
         minBrightness = Double.MAX_VALUE;
         maxBrightness = Double.MIN_VALUE;
 
-        for (double raw : rawBrightnessMap.values()) {
+        for (int c = inCharset.nextSetBit(0); c >= 0; c = inCharset.nextSetBit(c + 1)) {
+            double raw = rawBrightness[c];
             if (raw < minBrightness) minBrightness = raw;
             if (raw > maxBrightness) maxBrightness = raw;
         }
 
-        for (Map.Entry<Character, Double> entry : brightnessMap.entrySet()) {
-            char key = entry.getKey();
-            double raw = rawBrightnessMap.get(key);
-            entry.setValue(normalizeBrightness(raw));
+        for (int c = inCharset.nextSetBit(0); c >= 0; c = inCharset.nextSetBit(c + 1)) {
+            brightness[c] = normalizeBrightness(rawBrightness[c]);
         }
     }
 
     /**
      * Calculates the brightness value for a given character.
+     * Uses the precomputed glyph table and only renders characters missing from it.
      * @param ascciChar The character to calculate brightness for
      * @return The brightness value as a ratio of white pixels to total pixels
      */
     private double setBrightnessForChar(char ascciChar){
-        boolean[][] boolArray = CharConverter.convertToBoolArray(ascciChar);
-        int arraySize = boolArray.length*boolArray[0].length;
-        int whiteCell = 0;
-        for (int i = 0; i < boolArray.length; i++) {
-            for (int j = 0; j < boolArray[i].length; j++) {
-                if (boolArray[i][j]) {
-                    whiteCell++;
-                }
-            }
-        }
-        return (double) whiteCell /(double) arraySize;
-    }
-
-    /**
-     * Initializes the brightness maps with values for all characters.
-     */
-    private void setBrightnessMap() {
-        for (Map.Entry<Character, Double> entry : brightnessMap.entrySet()) {
-            char asciiChar = entry.getKey();
-            double raw = setBrightnessForChar(asciiChar);
-            rawBrightnessMap.put(asciiChar, raw);
-            entry.setValue(raw);
-            if (raw > maxBrightness) maxBrightness = raw;
-            if (raw < minBrightness) minBrightness = raw;
-        }
-
-        for (Map.Entry<Character, Double> entry : brightnessMap.entrySet()) {
-            double raw = rawBrightnessMap.get(entry.getKey());
-            entry.setValue(normalizeBrightness(raw));
-        }
+        return GlyphBrightnessTable.getRawBrightness(ascciChar);
     }
 
     /**
@@ -160,20 +310,102 @@ public class SubImgCharMatcher {
      * @param roundingMethod The rounding method to use ("abs", "up", or "down")
      */
     public void setRoundingMethod(String roundingMethod) {
-        if (roundingMethod.equals("abs")) {
+        if (roundingMethod.equals(ABS)) {
             this.roundingMethod = new AbsRound();
-        } else if (roundingMethod.equals("up")) {
+        } else if (roundingMethod.equals(UP)) {
             this.roundingMethod = new UpRound();
-        } else if (roundingMethod.equals("down")) {
+        } else if (roundingMethod.equals(DOWN)) {
             this.roundingMethod = new DownRound();
+        } else {
+            return;
         }
+        roundingMethodName = roundingMethod;
+        lookupTable = null;
+    }
+
+    /**
+     * Gets the name of the current rounding method.
+     * @return "abs", "up" or "down"
+     */
+    public String getRoundingMethodName() {
+        return roundingMethodName;
     }
 
     /**
-     * Gets the map of normalized brightness values.
+     * Gets a counter that changes whenever the character set changes, so callers can
+     * tell whether results computed with an earlier charset are still valid.
+     * @return The current charset version
+     */
+    public long getCharsetVersion() {
+        return charsetVersion;
+    }
+
+    /**
+     * Gets the number of characters in the set.
+     * @return The charset size
+     */
+    public int getCharsetSize() {
+        return inCharset.cardinality();
+    }
+
+    /**
+     * Gets a read-only view of the normalized brightness values, in ascending
+     * character order. The view follows later changes to the charset.
      * @return The brightness map
      */
     public Map<Character, Double> getBrightnessMap() {
-        return brightnessMap;
+        return brightnessView;
+    }
+
+    /**
+     * Read-only map over the brightness array, boxing only the entries it hands out.
+     */
+    private final class BrightnessView extends AbstractMap<Character, Double> {
+        @Override
+        public int size() {
+            return inCharset.cardinality();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Character c && c < CHAR_LIMIT && inCharset.get(c);
+        }
+
+        @Override
+        public Double get(Object key) {
+            return containsKey(key) ? brightness[(Character) key] : null;
+        }
+
+        @Override
+        public Set<Entry<Character, Double>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return inCharset.cardinality();
+                }
+
+                @Override
+                public Iterator<Entry<Character, Double>> iterator() {
+                    return new Iterator<>() {
+                        private int next = inCharset.nextSetBit(0);
+
+                        @Override
+                        public boolean hasNext() {
+                            return next >= 0;
+                        }
+
+                        @Override
+                        public Entry<Character, Double> next() {
+                            if (next < 0) {
+                                throw new NoSuchElementException();
+                            }
+                            char c = (char) next;
+                            next = inCharset.nextSetBit(next + 1);
+                            return Map.entry(c, brightness[c]);
+                        }
+                    };
+                }
+            };
+        }
     }
 }
\ No newline at end of file
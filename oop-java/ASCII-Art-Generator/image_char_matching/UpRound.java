@@ -1,5 +1,7 @@
 package image_char_matching;
 
+import java.util.BitSet;
+
 /**
  * Implements a rounding strategy that rounds up to the nearest character brightness value.
  * This class finds the closest character whose brightness value is greater than or equal to
@@ -13,33 +15,51 @@ public class UpRound implements RoundingMethod {
      * value greater than or equal to the target.
      *
      * @param value The target brightness value to match
-     * @param char_map Map containing characters and their corresponding brightness values
-     * @return The character with the closest brightness value that is >= target value
+     * @param brightness Brightness value of each character, indexed by character
+     * @param chars Characters to choose from
+     * @return The character with the closest brightness value that is >= target value,
+     * the lowest of equal brightness, or the brightest character if there is none
      */
     @Override
-    public char round(double value, java.util.Map<Character, Double> char_map) {
-        // Initialize tracking variables for closest match
-        double closestBrightness = 0;
+    public char round(double value, double[] brightness, BitSet chars) {
+        // Closest character at or above the target, and the brightest as a fallback
+        double closestBrightness = Double.POSITIVE_INFINITY;
         char closestChar = 0;
-        boolean firstLoop = true;
-
-        // Iterate through each character and its brightness value
-        for (java.util.Map.Entry<Character, Double> entry : char_map.entrySet()) {
-            // Calculate distance from target value to current brightness
-            double distance = entry.getValue() - value;
+        boolean found = false;
+        double brightest = Double.NEGATIVE_INFINITY;
+        char brightestChar = 0;
 
-            // For first iteration, set initial closest values
-            if (firstLoop){
-                closestBrightness = distance;
-                closestChar = entry.getKey();
-                firstLoop = false;
+        // Characters ascend, so strict comparisons keep the lowest of equal brightness
+        for (int c = chars.nextSetBit(0); c >= 0; c = chars.nextSetBit(c + 1)) {
+            // Only characters at least as bright as the target are candidates
+            if (brightness[c] >= value && brightness[c] < closestBrightness) {
+                closestBrightness = brightness[c];
+                closestChar = (char) c;
+                found = true;
             }
-            // Update closest match if current distance is smaller but still non-negative
-            else if (distance < closestBrightness && distance >= 0){
-                closestBrightness = distance;
-                closestChar = entry.getKey();
+            if (brightness[c] > brightest) {
+                brightest = brightness[c];
+                brightestChar = (char) c;
             }
         }
-        return closestChar;
+        return found ? closestChar : brightestChar;
+    }
+
+    /**
+     * Rounds up using binary search. Among characters of equal brightness the
+     * lowest one is picked, which is the first of its group.
+     *
+     * @param value The target brightness value to match
+     * @param sorted The character set sorted by brightness
+     * @return The character with the closest brightness value that is >= target value,
+     * or the brightest character if there is none
+     */
+    @Override
+    public char round(double value, SortedCharBrightness sorted) {
+        int above = sorted.ceilingIndex(value);
+        if (above == sorted.size()) {
+            return sorted.charAt(sorted.firstOfGroup(above - 1));
+        }
+        return sorted.charAt(above);
     }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package image;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Luminance kernel using the Vector API, processing as many pixels per instruction
+ * as the CPU's preferred vector width allows.
+ * Requires the {@code jdk.incubator.vector} module, so it lives in the separate
+ * {@code simd} source root and is only compiled with that module added; the other
+ * sources build without it. {@link LuminanceKernels} only loads this class when the
+ * module is present and the class was compiled.
+ * @author Tomer Kadosh
+ */
+final class VectorLuminanceKernel implements LuminanceKernel {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final int CHANNEL_MASK = 0xFF;
+    /**
+     * Vector iterations accumulated in int lanes before widening to long. Keeps the
+     * sum of all lanes below Integer.MAX_VALUE for vectors of up to 16 lanes.
+     */
+    private static final int FLUSH_INTERVAL = 32;
+
+    @Override
+    public long sum(int[] pixels, int from, int to) {
+        long total = 0;
+        int i = from;
+        int upperBound = from + SPECIES.loopBound(to - from);
+        while (i < upperBound) {
+            int flushBound = Math.min(upperBound, i + SPECIES.length() * FLUSH_INTERVAL);
+            IntVector accumulator = IntVector.zero(SPECIES);
+            for (; i < flushBound; i += SPECIES.length()) {
+                accumulator = accumulator.add(luminance(IntVector.fromArray(SPECIES, pixels, i)));
+            }
+            total += accumulator.reduceLanes(VectorOperators.ADD);
+        }
+        // Scalar tail shorter than one vector
+        for (; i < to; i++) {
+            total += Luminance.of(pixels[i]);
+        }
+        return total;
+    }
+
+    @Override
+    public void luminance(int[] pixels, int from, int[] out, int outFrom, int length) {
+        int i = 0;
+        int upperBound = SPECIES.loopBound(length);
+        for (; i < upperBound; i += SPECIES.length()) {
+            luminance(IntVector.fromArray(SPECIES, pixels, from + i)).intoArray(out, outFrom + i);
+        }
+        for (; i < length; i++) {
+            out[outFrom + i] = Luminance.of(pixels[from + i]);
+        }
+    }
+
+    /**
+     * Computes the scaled luminance of every lane of packed ARGB pixels.
+     */
+    private static IntVector luminance(IntVector argb) {
+        IntVector red = argb.lanewise(VectorOperators.LSHR, 16).and(CHANNEL_MASK);
+        IntVector green = argb.lanewise(VectorOperators.LSHR, 8).and(CHANNEL_MASK);
+        IntVector blue = argb.and(CHANNEL_MASK);
+        return red.mul(Luminance.RED_WEIGHT)
+                .add(green.mul(Luminance.GREEN_WEIGHT))
+                .add(blue.mul(Luminance.BLUE_WEIGHT));
+    }
+}
@@ -0,0 +1,123 @@
+package ascii_art;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that the server answers every upload with a status, including uploads whose
+ * header is readable but whose pixel data is not.
+ * @author Tomer Kadosh
+ */
+class AsciiArtServerTest {
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 32;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private AsciiArtServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new AsciiArtServer(0, AsciiArtServer.DEFAULT_MAX_IN_FLIGHT_PIXELS);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void listensOnLoopbackByDefault() {
+        assertEquals(InetAddress.getLoopbackAddress(), server.getBindAddress());
+    }
+
+    @Test
+    void validImageIsConverted() throws Exception {
+        HttpResponse<String> response = post("res=8", png());
+        assertEquals(200, response.statusCode());
+        assertEquals(HEIGHT / (WIDTH / 8), response.body().lines().count());
+    }
+
+    @Test
+    void uploadWithoutLengthIsConverted() throws Exception {
+        // Sent chunked, so the server reserves the largest upload until it has read it
+        byte[] png = png();
+        HttpRequest request = request("res=8")
+                .POST(HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(png)))
+                .build();
+        assertEquals(200, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    @Test
+    void exactWidthIsChargedForItsIntegralTable() throws Exception {
+        server.stop(0);
+        server = new AsciiArtServer(0, WIDTH * HEIGHT);
+        server.start();
+        assertEquals(200, post("res=8", png()).statusCode());
+        assertEquals(413, post("res=8&exact=true", png()).statusCode());
+    }
+
+    @Test
+    void truncatedImageIsUnsupported() throws Exception {
+        // Keeps the header, so the size is read and decoding fails on the pixel data
+        byte[] png = png();
+        assertEquals(415, post("res=8", Arrays.copyOf(png, png.length / 2)).statusCode());
+    }
+
+    @Test
+    void unknownFormatIsUnsupported() throws Exception {
+        assertEquals(415, post("res=8", new byte[]{1, 2, 3, 4}).statusCode());
+    }
+
+    @Test
+    void malformedParametersAreBadRequests() throws Exception {
+        assertEquals(400, post("res=zero", png()).statusCode());
+        assertEquals(400, post("res=8&round=sideways", png()).statusCode());
+        assertEquals(400, post("res=" + (WIDTH * 2), png()).statusCode());
+    }
+
+    private HttpResponse<String> post(String query, byte[] body) throws Exception {
+        HttpRequest request = request(query)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder request(String query) {
+        String address = server.getBindAddress().getHostAddress() + ":" + server.getPort();
+        return HttpRequest.newBuilder(
+                URI.create("http://" + address + AsciiArtServer.CONTEXT + "?" + query));
+    }
+
+    /**
+     * Encodes an image of random pixels, so the compressed data is long enough to truncate.
+     */
+    private static byte[] png() throws IOException {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(WIDTH * 31L + HEIGHT);
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                image.setRGB(col, row, random.nextInt(0x1000000));
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,70 @@
+package image;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests the geometry of the block grid over a virtually padded image.
+ * @author Tomer Kadosh
+ */
+class BlockGridTest {
+    /** Pads to 256 x 128, 28 columns and 14 rows of padding on each side */
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 100;
+
+    @Test
+    void resolutionNotDividingPaddedWidthIsRejected() {
+        // 256 / 100 would leave 56 padded columns uncovered and crop the image
+        assertThrows(IllegalArgumentException.class, () -> new BlockGrid(WIDTH, HEIGHT, 100));
+        assertThrows(IllegalArgumentException.class, () -> new BlockGrid(WIDTH, HEIGHT, 120));
+        assertThrows(IllegalArgumentException.class, () -> new BlockGrid(WIDTH, HEIGHT, 257));
+    }
+
+    @Test
+    void blocksCenterTheImageInThePaddedArea() {
+        BlockGrid grid = new BlockGrid(WIDTH, HEIGHT, 64);
+        assertEquals(4, grid.getBlockSize());
+        assertEquals(32, grid.getRows());
+        assertEquals(64, grid.getCols());
+        assertEquals(-14, grid.rowStart(0));
+        assertEquals(-28, grid.colStart(0));
+        assertEquals(WIDTH + 28 - 4, grid.colStart(63));
+    }
+
+    @Test
+    void blocksCoverEveryImagePixelOnce() {
+        // Resolution 1 would need blocks taller than the padded height
+        for (int resolution = 2; resolution <= 256; resolution *= 2) {
+            BlockGrid grid = new BlockGrid(WIDTH, HEIGHT, resolution);
+            long covered = 0;
+            for (int row = 0; row < grid.getRows(); row++) {
+                for (int col = 0; col < grid.getCols(); col++) {
+                    covered += grid.coveredArea(row, col);
+                }
+            }
+            assertEquals((long) WIDTH * HEIGHT, covered, "Resolution " + resolution);
+        }
+    }
+
+    @Test
+    void halfBlackImageKeepsItsMeanBrightness() {
+        // Left half white, right half black: the image mean is 0.5
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (int row = 0; row < HEIGHT; row++) {
+            Arrays.fill(pixels, row * WIDTH, row * WIDTH + WIDTH / 2, 0xFFFFFFFF);
+            Arrays.fill(pixels, row * WIDTH + WIDTH / 2, (row + 1) * WIDTH, 0xFF000000);
+        }
+        Image image = new Image(pixels, WIDTH, HEIGHT);
+        double[][] brightness = new ImagePrepration(image, 64).calculateBrightnessWithIntegral();
+
+        // Padding is white, so the grid mean is the padded area's share of white
+        double padded = 256.0 * 128;
+        double expected = (padded - WIDTH * HEIGHT / 2.0) / padded;
+        assertEquals(expected, Arrays.stream(brightness).flatMapToDouble(Arrays::stream)
+                .average().orElseThrow(), 1e-12);
+    }
+}
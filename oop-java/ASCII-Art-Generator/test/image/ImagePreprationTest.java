@@ -0,0 +1,156 @@
+package image;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that the brightness passes agree with each other and with a reference that
+ * pads the image and copies every block, as the passes did before they were optimized.
+ * @author Tomer Kadosh
+ */
+class ImagePreprationTest {
+    /** Image sizes, including ones padded on each side and powers of two */
+    private static final int[][] SIZES = {{64, 64}, {100, 37}, {37, 100}, {128, 32}, {33, 65}};
+    private static final int[] RESOLUTIONS = {1, 2, 4, 8, 16, 32};
+    private static final int PARALLELISM = 4;
+
+    @Test
+    void viewsMatchCopiedBlocks() {
+        forEachCase((image, resolution) -> assertGridEquals(
+                copiedBlockBrightness(image, resolution),
+                new ImagePrepration(image, resolution).calculateBrightnessForALL(image, resolution)));
+    }
+
+    @Test
+    void integralMatchesDirectPass() {
+        forEachCase((image, resolution) -> {
+            ImagePrepration preparation = new ImagePrepration(image, resolution);
+            assertGridEquals(preparation.calculateBrightnessForALL(image, resolution),
+                    preparation.calculateBrightnessWithIntegral());
+        });
+    }
+
+    @Test
+    void colorPassMatchesBrightnessPass() {
+        forEachCase((image, resolution) -> {
+            ImagePrepration preparation = new ImagePrepration(image, resolution);
+            assertGridEquals(preparation.calculateBrightnessForALL(image, resolution),
+                    preparation.calculateBrightnessAndColorForALL().getBrightness());
+        });
+    }
+
+    @Test
+    void parallelMatchesSequential() {
+        forEachCase((image, resolution) -> {
+            ImagePrepration sequential = new ImagePrepration(image, resolution);
+            ImagePrepration parallel = new ImagePrepration(image, resolution);
+            parallel.setParallelism(PARALLELISM);
+            assertGridEquals(sequential.calculateBrightnessForALL(image, resolution),
+                    parallel.calculateBrightnessForALL(image, resolution));
+            assertGridEquals(sequential.calculateBrightnessWithIntegral(),
+                    parallel.calculateBrightnessWithIntegral());
+            assertGridEquals(sequential.calculateBrightnessAreaWeighted(),
+                    parallel.calculateBrightnessAreaWeighted());
+            assertArrayEquals(sequential.calculateBrightnessAndColorForALL().getColors(),
+                    parallel.calculateBrightnessAndColorForALL().getColors());
+        });
+    }
+
+    @Test
+    void areaWeightedMatchesPaddedGridWhenBlocksDivide() {
+        // Power-of-two images have no padding, so both grids lay the same blocks
+        for (int[] size : new int[][]{{64, 64}, {128, 32}, {32, 128}}) {
+            Image image = TestImages.random(size[0], size[1], size[0] + size[1]);
+            for (int resolution : RESOLUTIONS) {
+                if (!supported(size[0], size[1], resolution)) {
+                    continue;
+                }
+                ImagePrepration preparation = new ImagePrepration(image, resolution);
+                double[][] padded = preparation.calculateBrightnessWithIntegral();
+                double[][] exact = preparation.calculateBrightnessAreaWeighted();
+                assertEquals(padded.length, exact.length);
+                for (int row = 0; row < padded.length; row++) {
+                    assertArrayEquals(padded[row], exact[row], 1e-12);
+                }
+                assertArrayEquals(preparation.calculateBrightnessAndColorForALL().getColors(),
+                        preparation.calculateBrightnessAndColorAreaWeighted().getColors());
+            }
+        }
+    }
+
+    /**
+     * Runs a check for every image size and every resolution its padded grid supports.
+     */
+    private static void forEachCase(Case check) {
+        for (int[] size : SIZES) {
+            Image image = TestImages.random(size[0], size[1], size[0] * 31L + size[1]);
+            for (int resolution : RESOLUTIONS) {
+                if (supported(size[0], size[1], resolution)) {
+                    check.run(image, resolution);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells whether the padded grid has whole blocks at a resolution: at most one
+     * column per padded pixel, and blocks no taller than the padded image.
+     */
+    private static boolean supported(int width, int height, int resolution) {
+        int paddedWidth = ImagePrepration.paddedWidth(width);
+        return resolution <= paddedWidth &&
+                paddedWidth / resolution <= ImagePrepration.paddedHeight(height);
+    }
+
+    /**
+     * Reference brightness: pads the image with white to power-of-two dimensions, copies
+     * every block out of the padded image and averages its luminance.
+     */
+    private static double[][] copiedBlockBrightness(Image image, int resolution) {
+        int width = ImagePrepration.paddedWidth(image.getWidth());
+        int height = ImagePrepration.paddedHeight(image.getHeight());
+        int left = (width - image.getWidth()) / 2;
+        int top = (height - image.getHeight()) / 2;
+        int[] padded = new int[width * height];
+        Arrays.fill(padded, 0xFFFFFFFF);
+        for (int row = 0; row < image.getHeight(); row++) {
+            for (int col = 0; col < image.getWidth(); col++) {
+                padded[(row + top) * width + col + left] = image.getRGB(row, col);
+            }
+        }
+
+        int blockSize = width / resolution;
+        double[][] brightness = new double[height / blockSize][resolution];
+        int[] block = new int[blockSize * blockSize];
+        for (int blockRow = 0; blockRow < brightness.length; blockRow++) {
+            for (int blockCol = 0; blockCol < resolution; blockCol++) {
+                for (int row = 0; row < blockSize; row++) {
+                    System.arraycopy(padded, (blockRow * blockSize + row) * width +
+                            blockCol * blockSize, block, row * blockSize, blockSize);
+                }
+                long sum = 0;
+                for (int rgb : block) {
+                    sum += Luminance.of(rgb);
+                }
+                brightness[blockRow][blockCol] = Luminance.toBrightness(sum, block.length);
+            }
+        }
+        return brightness;
+    }
+
+    private static void assertGridEquals(double[][] expected, double[][] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int row = 0; row < expected.length; row++) {
+            assertArrayEquals(expected[row], actual[row]);
+        }
+    }
+
+    /** A check of one image at one resolution */
+    private interface Case {
+        void run(Image image, int resolution);
+    }
+}
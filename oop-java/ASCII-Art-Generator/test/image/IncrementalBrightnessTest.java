@@ -0,0 +1,77 @@
+package image;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Rectangle;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that updating the brightness grid frame by frame gives the same grid as a full
+ * pass over each frame, with and without a changed region.
+ * @author Tomer Kadosh
+ */
+class IncrementalBrightnessTest {
+    private static final int WIDTH = 100;
+    private static final int HEIGHT = 37;
+    private static final int RESOLUTION = 16;
+    private static final int FRAMES = 20;
+
+    @Test
+    void updatesMatchFullPass() {
+        Random random = new Random(WIDTH * 31L + HEIGHT);
+        IncrementalBrightness whole = new IncrementalBrightness(RESOLUTION);
+        IncrementalBrightness hinted = new IncrementalBrightness(RESOLUTION);
+        Image frame = TestImages.random(WIDTH, HEIGHT, random.nextLong());
+        whole.update(frame);
+        hinted.update(frame, null);
+        for (int i = 0; i < FRAMES; i++) {
+            Rectangle region = new Rectangle(random.nextInt(WIDTH), random.nextInt(HEIGHT),
+                    1 + random.nextInt(WIDTH / 4), 1 + random.nextInt(HEIGHT / 4))
+                    .intersection(new Rectangle(WIDTH, HEIGHT));
+            frame = redraw(frame, region, random);
+            double[][] expected = new IncrementalBrightness(RESOLUTION).update(frame);
+            assertGridEquals(expected, whole.update(frame), "frame " + i);
+            assertGridEquals(expected, hinted.update(frame, region), "hinted frame " + i);
+        }
+        assertEquals(whole.getChangedBlocks(), hinted.getChangedBlocks());
+    }
+
+    @Test
+    void blocksWithUnchangedLuminanceKeepTheirBrightness() {
+        IncrementalBrightness brightness = new IncrementalBrightness(RESOLUTION);
+        Image frame = TestImages.random(WIDTH, HEIGHT, WIDTH);
+        brightness.update(frame);
+        long changed = brightness.getChangedBlocks();
+
+        // Swapping two pixels of one block moves them without changing the block's sum
+        int[] pixels = frame.getPixels().clone();
+        int swapped = pixels[0];
+        pixels[0] = pixels[1];
+        pixels[1] = swapped;
+        brightness.update(new Image(pixels, WIDTH, HEIGHT));
+        assertEquals(changed, brightness.getChangedBlocks());
+    }
+
+    /**
+     * Copies a frame, replacing the pixels of a region with random ones.
+     */
+    private static Image redraw(Image frame, Rectangle region, Random random) {
+        int[] pixels = frame.getPixels().clone();
+        for (int row = region.y; row < region.y + region.height; row++) {
+            for (int col = region.x; col < region.x + region.width; col++) {
+                pixels[row * WIDTH + col] = 0xFF000000 | random.nextInt(0x1000000);
+            }
+        }
+        return new Image(pixels, WIDTH, HEIGHT);
+    }
+
+    private static void assertGridEquals(double[][] expected, double[][] actual, String message) {
+        assertEquals(expected.length, actual.length, message);
+        for (int row = 0; row < expected.length; row++) {
+            assertArrayEquals(expected[row], actual[row], message);
+        }
+    }
+}
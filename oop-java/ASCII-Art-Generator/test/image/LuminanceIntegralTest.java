@@ -0,0 +1,63 @@
+package image;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests the luminance integral table against direct sums over the pixels.
+ * @author Tomer Kadosh
+ */
+class LuminanceIntegralTest {
+    private static final int WIDTH = 37;
+    private static final int HEIGHT = 23;
+
+    private final Image image = TestImages.random(WIDTH, HEIGHT, 1);
+    private final LuminanceIntegral integral = image.getLuminanceIntegral();
+
+    @Test
+    void sumMatchesDirectSumOverRandomRectangles() {
+        Random random = new Random(2);
+        for (int i = 0; i < 500; i++) {
+            // Bounds may lie outside the image, which the table clamps
+            int top = random.nextInt(HEIGHT + 10) - 5;
+            int left = random.nextInt(WIDTH + 10) - 5;
+            int bottom = random.nextInt(HEIGHT + 10) - 5;
+            int right = random.nextInt(WIDTH + 10) - 5;
+            assertEquals(directSum(top, left, bottom, right),
+                    integral.sum(top, left, bottom, right));
+        }
+    }
+
+    @Test
+    void areaSumAtPixelBoundsMatchesSum() {
+        assertEquals(integral.sum(3, 4, 20, 30), integral.areaSum(3, 4, 20, 30));
+        assertEquals(integral.sum(0, 0, HEIGHT, WIDTH), integral.areaSum(0, 0, HEIGHT, WIDTH));
+    }
+
+    @Test
+    void areaSumWeightsPartlyCoveredPixels() {
+        // Half of the pixel at (2, 5)
+        double expected = Luminance.of(image.getRGB(2, 5)) / 2.0;
+        assertEquals(expected, integral.areaSum(2, 5, 2.5, 6), 1e-6);
+    }
+
+    @Test
+    void undersizedPixelBufferIsRejectedWithoutOverflow() {
+        // 65536 * 65536 overflows an int to 0
+        assertThrows(IllegalArgumentException.class, () -> new Image(new int[1], 65536, 65536));
+    }
+
+    private long directSum(int top, int left, int bottom, int right) {
+        long sum = 0;
+        for (int row = Math.max(top, 0); row < Math.min(bottom, HEIGHT); row++) {
+            for (int col = Math.max(left, 0); col < Math.min(right, WIDTH); col++) {
+                sum += Luminance.of(image.getRGB(row, col));
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,70 @@
+package image;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests that the vectorized and the scalar luminance kernels produce the same results.
+ * Skipped when the JVM runs without the {@code jdk.incubator.vector} module.
+ * @author Tomer Kadosh
+ */
+class LuminanceKernelTest {
+    /** Longer than any vector, so every run length leaves every possible tail */
+    private static final int MAX_RUN = 70;
+    private static final int MAX_OFFSET = 17;
+
+    private final boolean wasVectorized = LuminanceKernels.isVectorized();
+
+    @AfterEach
+    void restoreKernel() {
+        LuminanceKernels.setVectorized(wasVectorized);
+    }
+
+    @Test
+    void kernelsAgreeOnEveryRunLengthAndOffset() {
+        LuminanceKernel vector = vectorKernel();
+        LuminanceKernel scalar = scalarKernel();
+        int[] pixels = TestImages.random(MAX_RUN + MAX_OFFSET, 1, 3).getPixels();
+
+        for (int from = 0; from <= MAX_OFFSET; from++) {
+            for (int length = 0; length <= MAX_RUN; length++) {
+                assertEquals(scalar.sum(pixels, from, from + length),
+                        vector.sum(pixels, from, from + length), from + "+" + length);
+
+                int[] expected = new int[length + 1];
+                int[] actual = new int[length + 1];
+                scalar.luminance(pixels, from, expected, 1, length);
+                vector.luminance(pixels, from, actual, 1, length);
+                assertArrayEquals(expected, actual, from + "+" + length);
+            }
+        }
+    }
+
+    @Test
+    void kernelsAgreeOnLongWhiteRuns() {
+        // Enough white pixels to overflow int lanes if partial sums were never widened
+        int[] pixels = new int[100_003];
+        Arrays.fill(pixels, 0xFFFFFFFF);
+        assertEquals((long) pixels.length * Luminance.MAX_LUMINANCE,
+                vectorKernel().sum(pixels, 0, pixels.length));
+        assertEquals(scalarKernel().sum(pixels, 1, pixels.length),
+                vectorKernel().sum(pixels, 1, pixels.length));
+    }
+
+    private static LuminanceKernel vectorKernel() {
+        assumeTrue(LuminanceKernels.setVectorized(true), "Vector API is not available");
+        return LuminanceKernels.current();
+    }
+
+    private static LuminanceKernel scalarKernel() {
+        LuminanceKernels.setVectorized(false);
+        return LuminanceKernels.current();
+    }
+}
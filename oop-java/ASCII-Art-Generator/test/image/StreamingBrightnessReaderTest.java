@@ -0,0 +1,56 @@
+package image;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that decoding an image in strips gives the same brightness grid as the
+ * in-memory pass, whatever the strip height.
+ * @author Tomer Kadosh
+ */
+class StreamingBrightnessReaderTest {
+    private static final int[][] SIZES = {{64, 64}, {100, 37}, {37, 100}};
+    /** Single rows, strips that do not divide the height, and the whole image at once */
+    private static final int[] STRIP_HEIGHTS = {1, 7, StreamingBrightnessReader.DEFAULT_STRIP_HEIGHT};
+    private static final int RESOLUTION = 16;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void stripsMatchInMemoryPass() throws IOException {
+        for (int[] size : SIZES) {
+            File file = writePng(TestImages.random(size[0], size[1], size[0] * 31L + size[1]));
+            double[][] expected = new ImagePrepration(new Image(file.getPath()), RESOLUTION)
+                    .calculateBrightnessWithIntegral();
+            for (int stripHeight : STRIP_HEIGHTS) {
+                double[][] actual = StreamingBrightnessReader.readBrightness(
+                        file.getPath(), RESOLUTION, stripHeight);
+                assertEquals(expected.length, actual.length);
+                for (int row = 0; row < expected.length; row++) {
+                    assertArrayEquals(expected[row], actual[row],
+                            size[0] + "x" + size[1] + " in strips of " + stripHeight);
+                }
+            }
+        }
+    }
+
+    private File writePng(Image image) throws IOException {
+        BufferedImage buffered = new BufferedImage(image.getWidth(), image.getHeight(),
+                BufferedImage.TYPE_INT_RGB);
+        buffered.setRGB(0, 0, image.getWidth(), image.getHeight(), image.getPixels(), 0,
+                image.getWidth());
+        File file = directory.resolve(image.getWidth() + "x" + image.getHeight() + ".png").toFile();
+        ImageIO.write(buffered, "png", file);
+        return file;
+    }
+}
@@ -0,0 +1,29 @@
+package image;
+
+import java.util.Random;
+
+/**
+ * Deterministic images for the brightness pass tests.
+ * @author Tomer Kadosh
+ */
+final class TestImages {
+    private TestImages() {
+    }
+
+    /**
+     * Creates an image of random opaque pixels.
+     *
+     * @param width Image width
+     * @param height Image height
+     * @param seed Seed of the pixel values
+     * @return The image
+     */
+    static Image random(int width, int height, long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return new Image(pixels, width, height);
+    }
+}
@@ -0,0 +1,32 @@
+package image_char_matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Font;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests the precomputed glyph brightness table against rendered glyphs.
+ * Rendering only matches the table in the converter's font, so the test is skipped
+ * on machines without it.
+ * @author Tomer Kadosh
+ */
+class GlyphBrightnessTableTest {
+
+    @Test
+    void tableMatchesRenderedGlyphs() {
+        Font font = new Font(CharConverter.FONT_NAME, Font.PLAIN,
+                CharConverter.DEFAULT_PIXEL_RESOLUTION);
+        assumeTrue(font.getFamily().equals(CharConverter.FONT_NAME),
+                CharConverter.FONT_NAME + " is not installed");
+
+        for (char c = GlyphBrightnessTable.FIRST_CHAR; c <= GlyphBrightnessTable.LAST_CHAR; c++) {
+            assertTrue(GlyphBrightnessTable.isKnown(c), "Missing from the table: " + c);
+            assertEquals(GlyphBrightnessTable.renderBrightness(c),
+                    GlyphBrightnessTable.getRawBrightness(c), "Brightness of " + c);
+        }
+    }
+}
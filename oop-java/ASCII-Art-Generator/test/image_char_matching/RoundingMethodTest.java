@@ -0,0 +1,65 @@
+package image_char_matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that both overloads of every rounding method pick the same character.
+ * @author Tomer Kadosh
+ */
+class RoundingMethodTest {
+    private static final RoundingMethod[] METHODS = {new AbsRound(), new UpRound(), new DownRound()};
+    /** Brightness levels of the random charsets, few enough to produce ties */
+    private static final int LEVELS = 8;
+
+    @Test
+    void overloadsAgreeOnRandomCharsets() {
+        Random random = new Random(5);
+        for (int charset = 0; charset < 500; charset++) {
+            double[] brightness = new double[SubImgCharMatcher.CHAR_LIMIT];
+            BitSet chars = new BitSet(SubImgCharMatcher.CHAR_LIMIT);
+            int size = 1 + random.nextInt(20);
+            for (int i = 0; i < size; i++) {
+                char c = (char) (32 + random.nextInt(94));
+                chars.set(c);
+                brightness[c] = (double) random.nextInt(LEVELS + 1) / LEVELS;
+            }
+            SortedCharBrightness sorted = new SortedCharBrightness(brightness, chars);
+
+            for (int i = 0; i < 50; i++) {
+                // Levels themselves, values between them and values outside [0,1]
+                double value = (random.nextInt(2 * LEVELS + 5) - 2) / (2.0 * LEVELS);
+                for (RoundingMethod method : METHODS) {
+                    assertEquals(method.round(value, sorted), method.round(value, brightness, chars),
+                            method.getClass().getSimpleName() + " at " + value);
+                }
+            }
+        }
+    }
+
+    @Test
+    void upAndDownSkipCharactersOnTheWrongSide() {
+        double[] brightness = new double[SubImgCharMatcher.CHAR_LIMIT];
+        BitSet chars = new BitSet(SubImgCharMatcher.CHAR_LIMIT);
+        brightness['a'] = 0.2;
+        brightness['b'] = 0.5;
+        brightness['c'] = 0.9;
+        chars.set('a', 'd');
+
+        UpRound up = new UpRound();
+        assertEquals('b', up.round(0.3, brightness, chars));
+        assertEquals('c', up.round(0.6, brightness, chars));
+        assertEquals('c', up.round(0.95, brightness, chars));
+
+        // The lowest character is not the darkest
+        brightness['a'] = 0.7;
+        DownRound down = new DownRound();
+        assertEquals('b', down.round(0.6, brightness, chars));
+        assertEquals('b', down.round(0.1, brightness, chars));
+        assertEquals('a', down.round(0.8, brightness, chars));
+    }
+}